@@ -0,0 +1,57 @@
+package ar.edu.itba.cripto.cryptography;
+
+import ar.edu.itba.cripto.model.SyntheticCovers;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CryptographyBenchmark {
+
+    @Param({"AES128", "AES192", "AES256", "DES"})
+    public CryptographyAlgorithm algorithm;
+
+    @Param({"ECB", "CFB", "OFB", "CBC"})
+    public CryptographyMode mode;
+
+    @Param({"1024", "1048576", "67108864"})
+    public int payloadBytes;
+
+    private Cryptography cryptography;
+    private byte[] plaintext;
+    private byte[] ciphertext;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        // Reportados por segundo, o sea MB/s
+        public double payloadMB;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cryptography = new Cryptography(algorithm, mode, "benchmark");
+        plaintext = SyntheticCovers.randomBytes(payloadBytes, 7);
+        ciphertext = cryptography.encrypt(plaintext);
+    }
+
+    @Benchmark
+    public byte[] encrypt(Throughput throughput) {
+        byte[] result = cryptography.encrypt(plaintext);
+        throughput.payloadMB += payloadBytes / (1024.0 * 1024.0);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] decrypt(Throughput throughput) {
+        byte[] result = cryptography.decrypt(ciphertext);
+        throughput.payloadMB += payloadBytes / (1024.0 * 1024.0);
+        return result;
+    }
+}
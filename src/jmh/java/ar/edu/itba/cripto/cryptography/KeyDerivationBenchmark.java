@@ -0,0 +1,34 @@
+package ar.edu.itba.cripto.cryptography;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Derivacion PBKDF2 + init de los ciphers, lo que paga cada new Cryptography(...)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyDerivationBenchmark {
+
+    @Param({"AES128", "AES192", "AES256", "DES"})
+    public CryptographyAlgorithm algorithm;
+
+    @Param({"ECB", "CBC"})
+    public CryptographyMode mode;
+
+    // Sin cache: PBKDF2 en cada llamada
+    @Benchmark
+    public Cryptography newCryptography() {
+        KeyCache.clear();
+        return new Cryptography(algorithm, mode, "benchmark");
+    }
+
+    // Misma password, algoritmo y modo que la llamada anterior
+    @Benchmark
+    public Cryptography newCryptographyCached() {
+        return new Cryptography(algorithm, mode, "benchmark");
+    }
+}
@@ -0,0 +1,118 @@
+package ar.edu.itba.cripto.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// getRGB / setRGB pixel a pixel contra los accesos por fila y region.
+// Cada benchmark recorre la imagen entera.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BMPAccessBenchmark {
+
+    private static final int TILE = 64;
+
+    @Param({"1", "10"})
+    public int megapixels;
+
+    private BMP image;
+    private int[] row;
+    private int[] tile;
+    private long pixelBytes;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        // Reportados por segundo, o sea MB/s
+        public double pixelMB;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        image = SyntheticCovers.create(megapixels, 42);
+        row = new int[image.getWidth()];
+        tile = new int[TILE * TILE];
+        pixelBytes = image.pixels().capacity();
+    }
+
+    @Benchmark
+    public long readPerPixel(Throughput throughput) {
+        long sum = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                sum += image.getRGB(x, y);
+            }
+        }
+        throughput.pixelMB += pixelBytes / (1024.0 * 1024.0);
+        return sum;
+    }
+
+    @Benchmark
+    public long readRows(Throughput throughput) {
+        long sum = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRegion(0, y, row.length, 1, row, 0);
+            for (int rgb : row) {
+                sum += rgb;
+            }
+        }
+        throughput.pixelMB += pixelBytes / (1024.0 * 1024.0);
+        return sum;
+    }
+
+    @Benchmark
+    public long readTiles(Throughput throughput) {
+        long sum = 0;
+        for (int y = 0; y < image.getHeight(); y += TILE) {
+            int h = Math.min(TILE, image.getHeight() - y);
+            for (int x = 0; x < image.getWidth(); x += TILE) {
+                int w = Math.min(TILE, image.getWidth() - x);
+                image.getRegion(x, y, w, h, tile, 0);
+                for (int i = 0; i < w * h; i++) {
+                    sum += tile[i];
+                }
+            }
+        }
+        throughput.pixelMB += pixelBytes / (1024.0 * 1024.0);
+        return sum;
+    }
+
+    // Bytes crudos (BGR + padding) sin desempaquetar
+    @Benchmark
+    public long readRowViews(Throughput throughput) {
+        long sum = 0;
+        for (ByteBuffer view : image.rows()) {
+            for (int i = 0; i < view.limit(); i++) {
+                sum += view.get(i);
+            }
+        }
+        throughput.pixelMB += pixelBytes / (1024.0 * 1024.0);
+        return sum;
+    }
+
+    @Benchmark
+    public void writePerPixel(Throughput throughput) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, x ^ y);
+            }
+        }
+        throughput.pixelMB += pixelBytes / (1024.0 * 1024.0);
+    }
+
+    @Benchmark
+    public void writeRows(Throughput throughput) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = x ^ y;
+            }
+            image.setRegion(0, y, row.length, 1, row, 0);
+        }
+        throughput.pixelMB += pixelBytes / (1024.0 * 1024.0);
+    }
+}
@@ -0,0 +1,64 @@
+package ar.edu.itba.cripto.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules=jdk.incubator.vector"})
+public class BMPBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int megapixels;
+
+    private Path directory;
+    private Path coverPath;
+    private Path outputPath;
+    private BMP cover;
+    private long pixelBytes;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        // Reportados por segundo, o sea MB/s
+        public double pixelMB;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("stegobmp-bench");
+        coverPath = directory.resolve("cover.bmp");
+        outputPath = directory.resolve("output.bmp");
+
+        cover = SyntheticCovers.create(megapixels, 42);
+        cover.writeBMP(coverPath.toString());
+        pixelBytes = cover.pixels().capacity();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(coverPath);
+        Files.deleteIfExists(outputPath);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public BMP load(Throughput throughput) throws IOException {
+        BMP bmp = new BMP(coverPath.toString());
+        throughput.pixelMB += pixelBytes / (1024.0 * 1024.0);
+        return bmp;
+    }
+
+    @Benchmark
+    public void write(Throughput throughput) throws IOException {
+        cover.writeBMP(outputPath.toString());
+        throughput.pixelMB += pixelBytes / (1024.0 * 1024.0);
+    }
+}
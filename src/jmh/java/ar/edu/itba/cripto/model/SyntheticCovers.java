@@ -0,0 +1,30 @@
+package ar.edu.itba.cripto.model;
+
+import java.util.Random;
+
+public final class SyntheticCovers {
+
+    private SyntheticCovers() {}
+
+    // Cuadrada de ~megapixels millones de pixeles, con ruido para que LSBI tenga patrones reales
+    public static BMP create(int megapixels, long seed) {
+        return create(megapixels, seed, PixelFormat.BGR24);
+    }
+
+    public static BMP create(int megapixels, long seed, PixelFormat format) {
+        int side = (int) Math.sqrt(megapixels * 1_000_000.0);
+        BMP bmp = new BMP(side, side, format);
+
+        byte[] pixelData = new byte[bmp.pixels().capacity()];
+        new Random(seed).nextBytes(pixelData);
+        bmp.pixels().put(pixelData);
+
+        return bmp;
+    }
+
+    public static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
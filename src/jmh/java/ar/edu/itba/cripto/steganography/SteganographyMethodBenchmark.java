@@ -0,0 +1,134 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.model.BMP;
+import ar.edu.itba.cripto.model.PixelFormat;
+import ar.edu.itba.cripto.model.SyntheticCovers;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules=jdk.incubator.vector"})
+public class SteganographyMethodBenchmark {
+
+    @Param({"LSB1", "LSB4", "LSBI"})
+    public SteganographyMethod method;
+
+    @Param({"1", "10", "100"})
+    public int megapixels;
+
+    @Param({"SCALAR", "VECTOR"})
+    public SteganographyBackend backend;
+
+    @Param({"1"})
+    public int threads;
+
+    // 24: BGR, 32: BGRA (kernel propio, el backend no cambia nada)
+    @Param({"24"})
+    public int bitsPerPixel;
+
+    // 1KB, 1MB o MAX (~95% de la capacidad del cover); se recorta a la capacidad si no entra
+    @Param({"1KB", "1MB", "MAX"})
+    public String payload;
+
+    private BMP cover;
+    private BMP stego;
+    private byte[] message;
+    private long pixelBytesUsed;
+    private SteganographyOptions options;
+    private final byte[] buffer = new byte[64 * 1024];
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        // Reportados por segundo, o sea MB/s
+        public double payloadMB;
+        public double pixelMB;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        options = new SteganographyOptions(backend, threads);
+
+        PixelFormat format = new PixelFormat(bitsPerPixel / 8, false);
+        cover = SyntheticCovers.create(megapixels, 42, format);
+        stego = SyntheticCovers.create(megapixels, 42, format);
+
+        // Bytes de color: toda la pixel data en 24 bits, sin el alpha en 32
+        int colorBytes = format.colorBytes(cover.pixels().capacity());
+        int capacity = (int) (capacity(method, colorBytes) * 0.95);
+        int length =
+                switch (payload) {
+                    case "1KB" -> 1024;
+                    case "1MB" -> 1024 * 1024;
+                    case "MAX" -> capacity;
+                    default -> throw new IllegalArgumentException("Unknown payload " + payload);
+                };
+        length = Math.min(length, capacity);
+
+        // length + datos, como lo arma Embed sin extension
+        message = SyntheticCovers.randomBytes(length, 7);
+        int dataLength = length - 4;
+        message[0] = (byte) (dataLength >>> 24);
+        message[1] = (byte) (dataLength >>> 16);
+        message[2] = (byte) (dataLength >>> 8);
+        message[3] = (byte) dataLength;
+
+        method.embed(message, stego, options);
+        pixelBytesUsed = pixelBytesUsed(method, length);
+    }
+
+    @Benchmark
+    public BMP embed(Throughput throughput) {
+        BMP result = method.embed(message, cover, options);
+        count(throughput);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] extract(Throughput throughput) {
+        byte[] result = method.extract(stego, false, options);
+        count(throughput);
+        return result;
+    }
+
+    // El stream solo, leyendo en un buffer reusado: con -prof gc lo unico alocado es el stream
+    @Benchmark
+    public int read(Throughput throughput) {
+        SteganographyInputStream in = method.newInputStream(stego, options);
+        int length = in.readInt();
+        int total = 0;
+        while (total < length) {
+            total += in.read(buffer, 0, Math.min(buffer.length, length - total));
+        }
+        count(throughput);
+        return total;
+    }
+
+    private void count(Throughput throughput) {
+        throughput.payloadMB += message.length / (1024.0 * 1024.0);
+        throughput.pixelMB += pixelBytesUsed / (1024.0 * 1024.0);
+    }
+
+    private static long capacity(SteganographyMethod method, long pixelBytes) {
+        return switch (method) {
+            case LSB1 -> pixelBytes / 8;
+            case LSB4 -> pixelBytes / 2;
+            // 4 bytes de patrones y se saltea el rojo
+            case LSBI -> (pixelBytes - 4) * 2 / 3 / 8;
+        };
+    }
+
+    private static long pixelBytesUsed(SteganographyMethod method, long messageLength) {
+        return switch (method) {
+            case LSB1 -> messageLength * 8;
+            case LSB4 -> messageLength * 2;
+            case LSBI -> messageLength * 8 * 3 / 2 + 4;
+        };
+    }
+}
@@ -1,19 +1,43 @@
 package ar.edu.itba.cripto;
 
+import ar.edu.itba.cripto.batch.Batch;
 import ar.edu.itba.cripto.cryptography.Cryptography;
 import ar.edu.itba.cripto.cryptography.CryptographyAlgorithm;
 import ar.edu.itba.cripto.cryptography.CryptographyMode;
+import ar.edu.itba.cripto.daemon.Daemon;
+import ar.edu.itba.cripto.daemon.DaemonClient;
+import ar.edu.itba.cripto.model.BMPHeader;
+import ar.edu.itba.cripto.model.PixelStorage;
+import ar.edu.itba.cripto.stats.JobStats;
+import ar.edu.itba.cripto.stats.JobStats.Phase;
+import ar.edu.itba.cripto.steganalysis.Analyzer;
+import ar.edu.itba.cripto.steganography.Compression;
+import ar.edu.itba.cripto.steganography.Detection;
 import ar.edu.itba.cripto.steganography.Embed;
 import ar.edu.itba.cripto.steganography.Extract;
+import ar.edu.itba.cripto.steganography.Preflight;
+import ar.edu.itba.cripto.steganography.SteganographyBackend;
+import ar.edu.itba.cripto.steganography.SteganographyMethod;
+import ar.edu.itba.cripto.steganography.SteganographyOptions;
 
 import org.apache.commons.cli.*;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 
 public class Configuration {
 
+    // Opciones que reciben un archivo
+    private static final Set<String> PATH_OPTIONS =
+            Set.of("-in", "--input", "-out", "--output", "-p", "--cover", "-batch", "--batch",
+                    "-analyze", "--analyze", "-stats", "--stats");
+
     private static final Option[] options = {
         new Option("h", "help", false, "Show help"),
         new Option("embed", "embed", false, "Embed a message in an image"),
@@ -22,170 +46,403 @@ public class Configuration {
         new Option("out", "output", true, "Output file"),
         new Option("p", "cover", true, "Cover file"),
         new Option("steg", "steganography", true, "Steganography method"),
+        new Option("capacity", "capacity", false, "Show how many bytes each method can hide in a cover"),
+        new Option("analyze", "analyze", true, "Run chi-square and RS steganalysis on a BMP or a directory"),
 
         // Cryptography options, optional (only password is required)
         new Option("a", "algorithm", true, "Cryptography algorithm"),
         new Option("m", "mode", true, "Cryptography mode"),
         new Option("pass", "password", true, "Password"),
+
+        // Performance options, optional
+        new Option("load", "load", true, "Cover loading strategy: heap, mmap or auto (default)"),
+        new Option("backend", "backend", true, "LSB backend: scalar, vector or auto (default)"),
+        new Option("threads", "threads", true, "Threads for large LSB payloads (default 1)"),
+        new Option("delta", "delta", false, "Write the output as a copy of the cover patched where it changed"),
+        new Option("compress", "compress", true, "Compress the message before embedding: level 1-9 or fast"),
+        new Option("stats", "stats", true, "Append a JSON record with phase times and sizes to a file (- for stdout)"),
+
+        // Batch mode: one embed or extract per manifest line
+        new Option("batch", "batch", true, "Run the jobs listed in a manifest file"),
+        new Option("jobs", "jobs", true, "Concurrent batch jobs or analyzed files (default: available processors)"),
+
+        // Daemon mode: a long running process that serves the requests sent with -client
+        new Option("daemon", "daemon", true, "Serve requests on a Unix domain socket"),
+        new Option("client", "client", true, "Send the request to the daemon listening on a socket"),
+        new Option("status", "status", false, "Show the daemon counters (with -client)"),
     };
 
     public static int run(String[] args) {
-        // Create the command line parser
-        CommandLineParser parser = new DefaultParser();
+        return run(args, System.out, System.err);
+    }
 
-        Options options = new Options();
-        for (Option option : Configuration.options) {
-            options.addOption(option);
-        }
+    // Los mensajes van a out y err, asi un batch puede correr varios jobs a la vez
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        long start = System.nanoTime();
 
         CommandLine cmd;
 
         try {
-            cmd = parser.parse(options, args);
+            cmd = parse(args);
         } catch (ParseException e) {
-            System.err.println("Error parsing command line arguments: " + e.getMessage());
+            err.println("Error parsing command line arguments: " + e.getMessage());
             return 1;
         }
 
-        if (cmd.hasOption("help")) {
-            printHelp(options);
-            return 0;
+        if (cmd.hasOption("client")) {
+            try {
+                return DaemonClient.send(
+                        Path.of(cmd.getOptionValue("client")), withoutClient(args), out, err);
+            } catch (IOException e) {
+                err.println("Error connecting to daemon: " + e.getMessage());
+                return 1;
+            }
         }
 
-        if (cmd.hasOption("embed")) {
-            Embed embed = new Embed();
-
-            if (!cmd.hasOption("input")) {
-                System.err.println("Input file is required");
+        if (cmd.hasOption("daemon")) {
+            try (Daemon daemon = new Daemon(Path.of(cmd.getOptionValue("daemon")))) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        daemon.close();
+                    } catch (IOException e) {
+                        // La JVM se esta cerrando igual
+                    }
+                }));
+                out.println("Listening on " + cmd.getOptionValue("daemon"));
+                daemon.serve();
+            } catch (IOException e) {
+                err.println("Error starting daemon: " + e.getMessage());
                 return 1;
             }
+            return 0;
+        }
+
+        if (cmd.hasOption("status")) {
+            err.println("Status is only available from a daemon (-client <socket> -status)");
+            return 1;
+        }
 
+        if (cmd.hasOption("help")) {
+            printHelp(getOptions(), out);
+            return 0;
+        }
+
+        if (cmd.hasOption("batch") || cmd.hasOption("analyze")) {
+            int jobs = Runtime.getRuntime().availableProcessors();
             try {
-                embed.setInput(cmd.getOptionValue("input"));
-            } catch (IOException e) {
-                System.err.println("Error reading input file: " + e.getMessage());
+                if (cmd.hasOption("jobs")) {
+                    jobs = Integer.parseInt(cmd.getOptionValue("jobs"));
+                }
+                if (jobs < 1) {
+                    throw new IllegalArgumentException();
+                }
+            } catch (IllegalArgumentException e) {
+                err.println("Invalid number of jobs");
                 return 1;
             }
 
-            if (!cmd.hasOption("cover")) {
-                System.err.println("Cover file is required");
-                return 1;
+            if (cmd.hasOption("analyze")) {
+                try {
+                    return new Analyzer(Path.of(cmd.getOptionValue("analyze")), jobs).run(out, err);
+                } catch (IOException e) {
+                    err.println("Error reading " + cmd.getOptionValue("analyze") + ": " + e.getMessage());
+                    return 1;
+                }
             }
 
             try {
-                embed.setCover(cmd.getOptionValue("cover"));
+                return new Batch(Path.of(cmd.getOptionValue("batch")), jobs).run(out, err);
             } catch (IOException e) {
-                System.err.println("Error reading cover file: " + e.getMessage());
+                err.println("Error reading batch manifest: " + e.getMessage());
                 return 1;
             }
+        }
 
-            if (!cmd.hasOption("output")) {
-                System.err.println("Output file is required");
-                return 1;
+        if (cmd.hasOption("capacity")) {
+            return capacity(cmd, out, err);
+        }
+
+        if (cmd.hasOption("embed") || cmd.hasOption("extract")) {
+            // -stats: lo que se parseo hasta aca cuenta como parse
+            String operation = cmd.hasOption("embed") ? "embed" : "extract";
+            JobStats stats = null;
+            if (cmd.hasOption("stats")) {
+                stats = new JobStats(operation, start);
+                stats.put("cover", cmd.getOptionValue("cover"));
+                stats.put("output", cmd.getOptionValue("output"));
             }
 
-            embed.setOutput(cmd.getOptionValue("output"));
+            int status = cmd.hasOption("embed") ? embed(cmd, out, err, stats) : extract(cmd, out, err, stats);
 
-            if (!cmd.hasOption("steganography")) {
-                System.err.println("Steganography method is required");
-                return 1;
+            if (stats != null) {
+                try {
+                    stats.write(cmd.getOptionValue("stats"), status, out);
+                } catch (IOException e) {
+                    err.println("Error writing stats: " + e.getMessage());
+                    return 1;
+                }
             }
+            return status;
+        }
 
-            try {
-                embed.setSteganographyMethod(cmd.getOptionValue("steganography"));
-            } catch (IllegalArgumentException e) {
-                System.err.println("Invalid steganography method");
-                return 1;
-            }
+        printHelp(getOptions(), out);
+
+        return 0;
+    }
 
+    private static int embed(CommandLine cmd, PrintStream out, PrintStream err, JobStats stats) {
+        Embed embed = new Embed();
+
+        if (!cmd.hasOption("input")) {
+            err.println("Input file is required");
+            return 1;
+        }
+
+        try {
+            embed.setInput(cmd.getOptionValue("input"));
+        } catch (IOException e) {
+            err.println("Error reading input file: " + e.getMessage());
+            return 1;
+        }
+
+        if (!cmd.hasOption("cover")) {
+            err.println("Cover file is required");
+            return 1;
+        }
+
+        if (!cmd.hasOption("output")) {
+            err.println("Output file is required");
+            return 1;
+        }
+
+        embed.setOutput(cmd.getOptionValue("output"));
+
+        if (!cmd.hasOption("steganography")) {
+            err.println("Steganography method is required");
+            return 1;
+        }
+
+        try {
+            embed.setSteganographyMethod(cmd.getOptionValue("steganography"));
+        } catch (IllegalArgumentException e) {
+            err.println("Invalid steganography method");
+            return 1;
+        }
+
+        if (cmd.hasOption("compress")) {
             try {
-                Cryptography cryptography = getCryptography(cmd);
-                if (cryptography != null) {
-                    embed.setCryptography(cryptography);
-                }
+                embed.setCompression(Compression.parse(cmd.getOptionValue("compress")));
             } catch (IllegalArgumentException e) {
-                System.err.println("Invalid cryptography parameters");
+                err.println("Invalid compression level");
                 return 1;
             }
+        }
 
-            System.out.println("Embedding message...");
+        try {
+            embed.setOptions(getSteganographyOptions(cmd, err));
+        } catch (IllegalArgumentException e) {
+            err.println("Invalid steganography options");
+            return 1;
+        }
 
-            try {
-                embed.execute();
-            } catch (IOException e) {
-                System.err.println("Error writing output file: " + e.getMessage());
+        // Con solo el header, antes de cargar el cover y de derivar la clave
+        try {
+            embed.preflight(cmd.getOptionValue("cover"), getAlgorithm(cmd), getMode(cmd));
+        } catch (IllegalArgumentException e) {
+            err.println("Invalid cryptography parameters");
+            return 1;
+        } catch (IOException e) {
+            err.println("Error reading cover file: " + e.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            err.println(e.getMessage());
+            return 1;
+        }
+
+        PixelStorage storage;
+        try {
+            storage = getPixelStorage(cmd);
+        } catch (IllegalArgumentException e) {
+            err.println("Invalid cover loading strategy");
+            return 1;
+        }
+
+        Phase previous = enter(stats, Phase.LOAD_COVER);
+        try {
+            embed.setCover(cmd.getOptionValue("cover"), storage);
+        } catch (IOException e) {
+            err.println("Error reading cover file: " + e.getMessage());
+            return 1;
+        }
+
+        enter(stats, Phase.KDF);
+        try {
+            Cryptography cryptography = getCryptography(cmd);
+            if (cryptography != null) {
+                embed.setCryptography(cryptography);
             }
+        } catch (IllegalArgumentException e) {
+            err.println("Invalid cryptography parameters");
+            return 1;
+        }
+        enter(stats, previous);
 
-            System.out.println("Message embedded to " + cmd.getOptionValue("output"));
+        embed.setDeltaWrite(cmd.hasOption("delta"));
+        embed.setStats(stats);
 
-            return 0;
+        out.println("Embedding message...");
+
+        try {
+            embed.execute();
+        } catch (IOException e) {
+            err.println("Error writing output file: " + e.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            // Comprimido, recien aca se sabe si entra
+            err.println(e.getMessage());
+            return 1;
+        }
+
+        if (embed.getCompressionStats() != null) {
+            out.println(embed.getCompressionStats());
+        }
+        out.println("Message embedded to " + cmd.getOptionValue("output"));
+
+        return 0;
+    }
+
+    private static int extract(CommandLine cmd, PrintStream out, PrintStream err, JobStats stats) {
+        Extract extract = new Extract();
+
+        if (!cmd.hasOption("p")) {
+            err.println("Cover file is required");
+            return 1;
+        }
+
+        if (!cmd.hasOption("output")) {
+            err.println("Output file is required");
+            return 1;
         }
 
-        if (cmd.hasOption("extract")) {
-            Extract extract = new Extract();
+        extract.setOutput(cmd.getOptionValue("output"));
 
-            if (!cmd.hasOption("p")) {
-                System.err.println("Cover file is required");
+        if (!cmd.hasOption("steganography")) {
+            err.println("Steganography method is required");
+            return 1;
+        }
+
+        boolean detect = cmd.getOptionValue("steganography").equalsIgnoreCase("AUTO");
+
+        if (!detect) {
+            try {
+                extract.setSteganographyMethod(cmd.getOptionValue("steganography"));
+            } catch (IllegalArgumentException e) {
+                err.println("Invalid steganography method");
                 return 1;
             }
+        }
+
+        try {
+            extract.setOptions(getSteganographyOptions(cmd, err));
+        } catch (IllegalArgumentException e) {
+            err.println("Invalid steganography options");
+            return 1;
+        }
 
+        // Con solo el header y el length oculto, antes de cargar el cover y de derivar la clave
+        if (!detect) {
             try {
-                extract.setCover(cmd.getOptionValue("p"));
+                extract.preflight(cmd.getOptionValue("p"), getAlgorithm(cmd), getMode(cmd));
+            } catch (IllegalArgumentException e) {
+                err.println("Invalid cryptography parameters");
+                return 1;
             } catch (IOException e) {
-                System.err.println("Error reading cover file: " + e.getMessage());
+                err.println("Error reading cover file: " + e.getMessage());
                 return 1;
-            }
-
-            if (!cmd.hasOption("output")) {
-                System.err.println("Output file is required");
+            } catch (RuntimeException e) {
+                err.println(e.getMessage());
                 return 1;
             }
+        }
 
-            extract.setOutput(cmd.getOptionValue("output"));
+        PixelStorage storage;
+        try {
+            storage = getPixelStorage(cmd);
+        } catch (IllegalArgumentException e) {
+            err.println("Invalid cover loading strategy");
+            return 1;
+        }
 
-            if (!cmd.hasOption("steganography")) {
-                System.err.println("Steganography method is required");
-                return 1;
-            }
+        Phase previous = enter(stats, Phase.LOAD_COVER);
+        try {
+            extract.setCover(cmd.getOptionValue("p"), storage);
+        } catch (IOException e) {
+            err.println("Error reading cover file: " + e.getMessage());
+            return 1;
+        }
+        enter(stats, previous);
 
+        if (detect) {
+            // Con password se prueban todos los algoritmos y modos que no se hayan fijado
+            List<CryptographyAlgorithm> algorithms;
+            List<CryptographyMode> modes;
             try {
-                extract.setSteganographyMethod(cmd.getOptionValue("steganography"));
+                boolean encrypted = getAlgorithm(cmd) != null;
+                algorithms = !encrypted ? null : cmd.hasOption("algorithm")
+                        ? List.of(getAlgorithm(cmd))
+                        : List.of(CryptographyAlgorithm.values());
+                modes = !encrypted ? null : cmd.hasOption("mode")
+                        ? List.of(getMode(cmd))
+                        : List.of(CryptographyMode.values());
             } catch (IllegalArgumentException e) {
-                System.err.println("Invalid steganography method");
+                err.println("Invalid cryptography parameters");
                 return 1;
             }
 
+            // Con password incluye derivar la clave de cada combinacion
+            enter(stats, Phase.DETECT);
+            try {
+                Detection detection = extract.detect(cmd.getOptionValue("password"), algorithms, modes);
+                out.println("Detected " + detection);
+            } catch (RuntimeException e) {
+                err.println(e.getMessage());
+                return 1;
+            }
+            enter(stats, previous);
+        } else {
+            enter(stats, Phase.KDF);
             try {
                 Cryptography cryptography = getCryptography(cmd);
                 if (cryptography != null) {
                     extract.setCryptography(cryptography);
                 }
             } catch (IllegalArgumentException e) {
-                System.err.println("Invalid cryptography parameters");
-                return 1;
-            }
-
-            System.out.println("Extracting message...");
-
-            String outputPath;
-            try {
-                outputPath = extract.execute();
-            } catch (IOException e) {
-                System.err.println("Error writing output file: " + e.getMessage());
+                err.println("Invalid cryptography parameters");
                 return 1;
             }
+            enter(stats, previous);
+        }
+        extract.setStats(stats);
 
-            System.out.println("Message extracted to " + outputPath);
+        out.println("Extracting message...");
 
-            return 0;
+        String outputPath;
+        try {
+            outputPath = extract.execute();
+        } catch (IOException e) {
+            err.println("Error writing output file: " + e.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            err.println(e.getMessage());
+            return 1;
         }
 
-        printHelp(options);
+        out.println("Message extracted to " + outputPath);
 
         return 0;
     }
 
-    private static void printHelp(Options options) {
+    private static void printHelp(Options options, PrintStream out) {
 
         HelpFormatter formatter = new HelpFormatter();
         List<Option> optionsList = List.of(Configuration.options);
@@ -200,36 +457,203 @@ public class Configuration {
                        \s
                         stegobmp -embed -in <input file> -p <cover file> -out <output file> -steg <LSB1|LSB4|LSBI>
                                 [-pass <password>] [-a <aes128|aes192|aes256|des>] [-m <ecb|cfb|ofb|cbc>]
+                                [-load <heap|mmap|auto>] [-backend <scalar|vector|auto>] [-threads <n>] [-delta]
+                                [-compress <1-9|fast>] [-stats <file|->]
                        \s
-                        stegobmp -extract -p <cover file> -out <output file> -steg <LSB1|LSB4|LSBI>
+                        stegobmp -extract -p <cover file> -out <output file> -steg <LSB1|LSB4|LSBI|AUTO>
                                 [-pass <password>] [-a <aes128|aes192|aes256|des>] [-m <ecb|cfb|ofb|cbc>]
+                                [-load <heap|mmap|auto>] [-backend <scalar|vector|auto>] [-threads <n>]
+                                [-stats <file|->]
+                       \s
+                        stegobmp -capacity -p <cover file> [-in <input file>]
+                                [-pass <password>] [-a <aes128|aes192|aes256|des>] [-m <ecb|cfb|ofb|cbc>]
+                       \s
+                        stegobmp -batch <manifest> [-jobs <n>]
+                       \s
+                        stegobmp -analyze <BMP file or directory> [-jobs <n>]
+                       \s
+                        stegobmp -daemon <socket>
+                        stegobmp -client <socket> <embed, extract or batch arguments>
+                        stegobmp -client <socket> -status
                            \s
                        \s""";
 
-        formatter.printHelp(commandLineSyntax, options);
+        PrintWriter writer = new PrintWriter(out);
+        formatter.printHelp(
+                writer,
+                formatter.getWidth(),
+                commandLineSyntax,
+                null,
+                options,
+                formatter.getLeftPadding(),
+                formatter.getDescPadding(),
+                null);
+        writer.flush();
     }
 
-    private static Cryptography getCryptography(CommandLine cmd) {
-        if (cmd.hasOption("algorithm") || cmd.hasOption("mode") || cmd.hasOption("password")) {
-            if (!cmd.hasOption("password")) {
-                throw new IllegalArgumentException("Password is required");
+    // Solo lee el header del cover (y el tamaño de -in, si esta)
+    private static int capacity(CommandLine cmd, PrintStream out, PrintStream err) {
+        if (!cmd.hasOption("cover")) {
+            err.println("Cover file is required");
+            return 1;
+        }
+
+        BMPHeader header;
+        try {
+            header = BMPHeader.read(cmd.getOptionValue("cover"));
+        } catch (IOException e) {
+            err.println("Error reading cover file: " + e.getMessage());
+            return 1;
+        }
+
+        long hiddenLength = -1;
+        if (cmd.hasOption("input")) {
+            Embed embed = new Embed();
+            try {
+                embed.setInput(cmd.getOptionValue("input"));
+            } catch (IOException e) {
+                err.println("Error reading input file: " + e.getMessage());
+                return 1;
+            }
+            try {
+                hiddenLength = Preflight.hiddenLength(embed.getMessageLength(), getAlgorithm(cmd), getMode(cmd));
+            } catch (IllegalArgumentException e) {
+                err.println("Invalid cryptography parameters");
+                return 1;
             }
+        }
+
+        out.println("Cover: " + header.width() + "x" + header.height() + ", "
+                + header.format().bitsPerPixel() + "-bit" + (header.format().topDown() ? " top-down" : "")
+                + " (" + header.pixelDataLength() + " bytes of pixel data)");
+        if (hiddenLength >= 0) {
+            out.println("Message: " + hiddenLength + " bytes to hide");
+        }
+        for (SteganographyMethod method : SteganographyMethod.values()) {
+            int capacity = method.capacity(header);
+            String fits = hiddenLength < 0 ? "" : hiddenLength <= capacity ? " (fits)" : " (does not fit)";
+            out.println(method + ": " + capacity + " bytes" + fits);
+        }
+        return 0;
+    }
+
+    // Resuelve los archivos de args contra directory, para correrlos desde otro directorio
+    // (el daemon, o los jobs de un manifest). -stats - es la salida, no un archivo
+    public static String[] resolvePaths(String[] args, Path directory) {
+        String[] resolved = args.clone();
+        for (int i = 0; i < resolved.length; i++) {
+            int equals = resolved[i].indexOf('=');
+            if (equals > 0 && PATH_OPTIONS.contains(resolved[i].substring(0, equals))) {
+                resolved[i] = resolved[i].substring(0, equals + 1)
+                        + resolve(resolved[i].substring(equals + 1), directory);
+            } else if (PATH_OPTIONS.contains(resolved[i]) && i + 1 < resolved.length) {
+                resolved[i + 1] = resolve(resolved[i + 1], directory);
+                i++;
+            }
+        }
+        return resolved;
+    }
+
+    private static String resolve(String path, Path directory) {
+        return path.equals("-") ? path : directory.resolve(path).toAbsolutePath().normalize().toString();
+    }
+
+    // Como lo parsea run, para que el daemon vea las mismas opciones (-status, --daemon=...)
+    public static CommandLine parse(String[] args) throws ParseException {
+        return new DefaultParser().parse(getOptions(), args);
+    }
+
+    private static Options getOptions() {
+        Options options = new Options();
+        for (Option option : Configuration.options) {
+            options.addOption(option);
+        }
+        return options;
+    }
 
-            CryptographyAlgorithm algorithm = CryptographyAlgorithm.AES128;
-            CryptographyMode mode = CryptographyMode.CBC;
+    // -stats: pasa a phase y devuelve la fase anterior, sin -stats no hace nada
+    private static Phase enter(JobStats stats, Phase phase) {
+        return stats == null ? null : stats.enter(phase);
+    }
 
-            if (cmd.hasOption("algorithm")) {
-                String algorithmString = cmd.getOptionValue("algorithm").toUpperCase();
-                algorithm = CryptographyAlgorithm.valueOf(algorithmString);
+    // Los argumentos que se le pasan al daemon
+    private static String[] withoutClient(String[] args) {
+        List<String> forwarded = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-client") || args[i].equals("--client")) {
+                i++;
+            } else if (args[i].startsWith("-client=") || args[i].startsWith("--client=")) {
+                continue;
+            } else {
+                forwarded.add(args[i]);
             }
+        }
+        return forwarded.toArray(new String[0]);
+    }
+
+    private static boolean usesCryptography(CommandLine cmd) {
+        return cmd.hasOption("algorithm") || cmd.hasOption("mode") || cmd.hasOption("password");
+    }
 
-            if (cmd.hasOption("mode")) {
-                String modeString = cmd.getOptionValue("mode").toUpperCase();
-                mode = CryptographyMode.valueOf(modeString);
+    // null si no se cifra
+    private static CryptographyAlgorithm getAlgorithm(CommandLine cmd) {
+        if (!usesCryptography(cmd)) {
+            return null;
+        }
+        if (!cmd.hasOption("password")) {
+            throw new IllegalArgumentException("Password is required");
+        }
+        if (cmd.hasOption("algorithm")) {
+            return CryptographyAlgorithm.valueOf(cmd.getOptionValue("algorithm").toUpperCase());
+        }
+        return CryptographyAlgorithm.AES128;
+    }
+
+    // null si no se cifra
+    private static CryptographyMode getMode(CommandLine cmd) {
+        if (!usesCryptography(cmd)) {
+            return null;
+        }
+        if (cmd.hasOption("mode")) {
+            return CryptographyMode.valueOf(cmd.getOptionValue("mode").toUpperCase());
+        }
+        return CryptographyMode.CBC;
+    }
+
+    private static Cryptography getCryptography(CommandLine cmd) {
+        CryptographyAlgorithm algorithm = getAlgorithm(cmd);
+        if (algorithm == null) {
+            return null;
+        }
+        return new Cryptography(algorithm, getMode(cmd), cmd.getOptionValue("password"));
+    }
+
+    private static PixelStorage getPixelStorage(CommandLine cmd) {
+        if (!cmd.hasOption("load")) {
+            return PixelStorage.AUTO;
+        }
+        return PixelStorage.valueOf(cmd.getOptionValue("load").toUpperCase());
+    }
+
+    private static SteganographyOptions getSteganographyOptions(CommandLine cmd, PrintStream err) {
+        SteganographyBackend backend = SteganographyBackend.AUTO;
+
+        if (cmd.hasOption("backend")) {
+            backend = SteganographyBackend.valueOf(cmd.getOptionValue("backend").toUpperCase());
+            if (backend == SteganographyBackend.VECTOR && !SteganographyBackend.isVectorAvailable()) {
+                err.println("Vector API not available, using scalar backend");
             }
+        }
 
-            return new Cryptography(algorithm, mode, cmd.getOptionValue("password"));
+        int threads = 1;
+        if (cmd.hasOption("threads")) {
+            threads = Integer.parseInt(cmd.getOptionValue("threads"));
+            if (threads < 1 || threads > SteganographyOptions.MAX_THREADS) {
+                err.println("Threads must be between 1 and " + SteganographyOptions.MAX_THREADS);
+                throw new IllegalArgumentException();
+            }
         }
-        return null;
+
+        return new SteganographyOptions(backend, threads);
     }
 }
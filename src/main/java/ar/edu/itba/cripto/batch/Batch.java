@@ -0,0 +1,164 @@
+package ar.edu.itba.cripto.batch;
+
+import ar.edu.itba.cripto.Configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Corre los jobs de un manifest en un pool de threads, en un solo proceso.
+// Cada linea son los argumentos de un -embed o -extract, las lineas vacias y las que
+// empiezan con # se ignoran. Un job que falla no corta el batch.
+public class Batch {
+
+    // Los permisos del semaforo se cuentan en KiB para que entren en un int
+    private static final int KIB = 1024;
+
+    private final List<BatchJob> jobs;
+    private final int workers;
+    private final long memoryBudget;
+
+    public Batch(Path manifest, int workers) throws IOException {
+        this(manifest, workers, Runtime.getRuntime().maxMemory() / 4 * 3);
+    }
+
+    public Batch(Path manifest, int workers, long memoryBudget) throws IOException {
+        this.jobs = parseManifest(manifest);
+        this.workers = workers;
+        this.memoryBudget = Math.max(memoryBudget, BatchJob.OVERHEAD);
+    }
+
+    // Devuelve 0 si todos los jobs terminaron bien
+    public int run(PrintStream out, PrintStream err) {
+        int budget = (int) Math.min(memoryBudget / KIB, Integer.MAX_VALUE);
+        Semaphore memory = new Semaphore(budget, true);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, Math.max(jobs.size(), 1)));
+        for (BatchJob job : jobs) {
+            pool.execute(() -> {
+                // Un cover mas grande que el presupuesto corre solo
+                int permits = (int) Math.min(job.estimatedMemory() / KIB, budget);
+                memory.acquireUninterruptibly(permits);
+                BatchResult result;
+                try {
+                    result = execute(job);
+                } finally {
+                    memory.release(permits);
+                }
+
+                (result.status() == 0 ? succeeded : failed).incrementAndGet();
+                synchronized (out) {
+                    out.println(result);
+                }
+            });
+        }
+
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Sigue esperando
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            err.println("Batch interrupted");
+            return 1;
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        out.println("Batch finished: " + succeeded.get() + " succeeded, " + failed.get()
+                + " failed in " + elapsed + " ms");
+
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    static BatchResult execute(BatchJob job) {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        PrintStream err = new PrintStream(errors, true);
+        // La salida del job (como -stats -) va al reporte, debajo de su linea
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(output, true);
+
+        long start = System.nanoTime();
+        int status;
+        try {
+            if (job.isBatch()) {
+                throw new IllegalArgumentException("Nested batch jobs are not supported");
+            }
+            status = Configuration.run(job.args(), out, err);
+        } catch (RuntimeException e) {
+            err.println(e.getMessage() != null ? e.getMessage() : e.toString());
+            status = 1;
+        } catch (OutOfMemoryError e) {
+            err.println("Out of memory");
+            status = 1;
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        return new BatchResult(
+                job.line(), status, elapsed, errors.toString().strip(), output.toString().strip());
+    }
+
+    private static List<BatchJob> parseManifest(Path manifest) throws IOException {
+        List<BatchJob> jobs = new ArrayList<>();
+        List<String> lines = Files.readAllLines(manifest);
+        // Los paths relativos son del directorio del manifest, se corra desde donde se corra
+        Path directory = manifest.toAbsolutePath().getParent();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                jobs.add(new BatchJob(i + 1, Configuration.resolvePaths(split(line), directory)));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return jobs;
+    }
+
+    // Separa por espacios, respetando "comillas dobles"
+    static String[] split(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean inArg = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inArg = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                current.append(c);
+                inArg = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        if (inArg) {
+            args.add(current.toString());
+        }
+        return args.toArray(new String[0]);
+    }
+}
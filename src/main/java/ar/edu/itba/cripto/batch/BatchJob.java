@@ -0,0 +1,52 @@
+package ar.edu.itba.cripto.batch;
+
+import ar.edu.itba.cripto.model.BMPHeader;
+import ar.edu.itba.cripto.model.PixelStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// Una linea del manifest: los argumentos de un -embed o -extract
+record BatchJob(int line, String[] args) {
+
+    // Buffers de lectura/escritura que usa un job ademas del cover
+    static final long OVERHEAD = 16L * 1024 * 1024;
+
+    // Heap que puede llegar a usar el job: el cover cargado en memoria mas los buffers.
+    // Un cover mapeado no ocupa heap, con la misma regla que usa BMP al cargarlo
+    long estimatedMemory() {
+        List<String> arguments = List.of(args);
+        String cover = value(arguments, "-p", "--cover");
+        if (cover == null) {
+            return OVERHEAD;
+        }
+        try {
+            String load = value(arguments, "-load", "--load");
+            PixelStorage storage = load == null ? PixelStorage.AUTO : PixelStorage.valueOf(load.toUpperCase());
+            Path path = Path.of(cover);
+            if (storage.maps(path, BMPHeader.read(cover).pixelDataLength())) {
+                return OVERHEAD;
+            }
+            return Files.size(path) + OVERHEAD;
+        } catch (IOException | RuntimeException e) {
+            // El job va a fallar al leer el cover o con el -load
+            return OVERHEAD;
+        }
+    }
+
+    boolean isBatch() {
+        List<String> arguments = List.of(args);
+        return arguments.contains("-batch") || arguments.contains("--batch");
+    }
+
+    private static String value(List<String> arguments, String shortName, String longName) {
+        for (int i = 0; i < arguments.size() - 1; i++) {
+            if (arguments.get(i).equals(shortName) || arguments.get(i).equals(longName)) {
+                return arguments.get(i + 1);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,17 @@
+package ar.edu.itba.cripto.batch;
+
+// Resultado de un job, una linea del reporte seguida de lo que el job imprimio
+record BatchResult(int line, int status, long millis, String error, String output) {
+
+    @Override
+    public String toString() {
+        String result;
+        if (status == 0) {
+            result = "Line " + line + ": OK (" + millis + " ms)";
+        } else {
+            String message = error.isEmpty() ? "exit status " + status : error.replace('\n', ' ');
+            result = "Line " + line + ": FAILED (" + millis + " ms) " + message;
+        }
+        return output.isEmpty() ? result : result + System.lineSeparator() + output;
+    }
+}
@@ -0,0 +1,39 @@
+package ar.edu.itba.cripto.cryptography;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento de JFR de un cifrado o descifrado entero. En los streams va desde que se crean
+// hasta el doFinal, asi que incluye lo que tarde quien escribe o lee
+@Name("stegobmp.Cipher")
+@Label("Cipher")
+@Category({"stegobmp", "Cryptography"})
+@Description("A whole message encrypted or decrypted")
+@StackTrace(false)
+final class CipherEvent extends Event {
+
+    static final String ENCRYPT = "encrypt";
+    static final String DECRYPT = "decrypt";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Input")
+    @DataAmount
+    long bytesIn;
+
+    @Label("Output")
+    @DataAmount
+    long bytesOut;
+}
@@ -1,8 +1,11 @@
 package ar.edu.itba.cripto.cryptography;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 
 import javax.crypto.*;
 import javax.crypto.spec.IvParameterSpec;
@@ -17,9 +20,16 @@ public class Cryptography {
 
     private final Cipher encryptCipher;
     private final Cipher decryptCipher;
+    private final Key key;
+    private final IvParameterSpec iv;
+    private final CryptographyAlgorithm algorithm;
+    private final CryptographyMode mode;
 
     public Cryptography(CryptographyAlgorithm algorithm, CryptographyMode mode, String password) {
 
+        this.algorithm = algorithm;
+        this.mode = mode;
+
         String transformation = algorithm.getAlgorithm() + "/" + mode.getMode() + (mode.usesPadding() ? "/PKCS5Padding" : "/NoPadding");
 
         try {
@@ -31,12 +41,18 @@ public class Cryptography {
             int keySize = algorithm.getKeySize();
             int ivSize = mode.usesIV() ? algorithm.getIvSize() : 0;
 
-            byte[] keyIV = deriveKeyIV(password, keySize + ivSize);
+            // PBKDF2 domina el tiempo de los payloads chicos, se deriva una vez por password
+            byte[] keyIV = KeyCache.get(password, algorithm, mode);
+            if (keyIV == null) {
+                keyIV = deriveKeyIV(password, keySize + ivSize);
+                KeyCache.put(password, algorithm, mode, keyIV);
+            }
 
             byte[] keyBytes = new byte[keySize / 8];
             System.arraycopy(keyIV, 0, keyBytes, 0, keySize / 8);
 
-            Key key = new SecretKeySpec(keyBytes, algorithm.getAlgorithm());
+            this.key = new SecretKeySpec(keyBytes, algorithm.getAlgorithm());
+            Arrays.fill(keyBytes, (byte) 0);
 
             IvParameterSpec iv = null;
             if (mode.usesIV()) {
@@ -44,6 +60,8 @@ public class Cryptography {
                 System.arraycopy(keyIV, keySize / 8, ivBytes, 0, ivSize / 8);
                 iv = new IvParameterSpec(ivBytes);
             }
+            this.iv = iv;
+            Arrays.fill(keyIV, (byte) 0);
 
             // Initialize ciphers
             encryptCipher.init(Cipher.ENCRYPT_MODE, key, iv);
@@ -55,8 +73,12 @@ public class Cryptography {
     }
 
     public byte[] encrypt(byte[] message) {
+        CipherEvent event = new CipherEvent();
+        event.begin();
         try {
-            return encryptCipher.doFinal(message);
+            byte[] encrypted = encryptCipher.doFinal(message);
+            commit(event, CipherEvent.ENCRYPT, message.length, encrypted.length);
+            return encrypted;
         } catch (IllegalBlockSizeException e) {
             throw new IllegalStateException("Illegal block size", e);
         } catch (BadPaddingException e) {
@@ -65,8 +87,12 @@ public class Cryptography {
     }
 
     public byte[] decrypt(byte[] message) {
+        CipherEvent event = new CipherEvent();
+        event.begin();
         try {
-            return decryptCipher.doFinal(message);
+            byte[] decrypted = decryptCipher.doFinal(message);
+            commit(event, CipherEvent.DECRYPT, message.length, decrypted.length);
+            return decrypted;
         } catch (IllegalBlockSizeException e) {
             throw new IllegalStateException("Illegal block size", e);
         } catch (BadPaddingException e) {
@@ -74,11 +100,69 @@ public class Cryptography {
         }
     }
 
+    public CryptographyAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public CryptographyMode getMode() {
+        return mode;
+    }
+
+    // Largo exacto del texto cifrado de un mensaje de messageLength bytes,
+    // para poder escribirlo antes de cifrar
+    public int getEncryptedLength(int messageLength) {
+        return encryptCipher.getOutputSize(messageLength);
+    }
+
+    // Cifra todo lo que se escriba y lo pasa a out. Hay que cerrarlo para escribir el ultimo bloque
+    public OutputStream encrypt(OutputStream out) {
+        init(encryptCipher, Cipher.ENCRYPT_MODE);
+        return new EncryptingOutputStream(encryptCipher, out, this);
+    }
+
+    // Descifra los encryptedLength bytes que siguen en in
+    public InputStream decrypt(InputStream in, int encryptedLength) {
+        init(decryptCipher, Cipher.DECRYPT_MODE);
+        return new DecryptingInputStream(decryptCipher, in, encryptedLength, this);
+    }
+
+    // Lo llaman tambien los streams al hacer el doFinal
+    void commit(CipherEvent event, String operation, long bytesIn, long bytesOut) {
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.algorithm = algorithm.name();
+            event.mode = mode.name();
+            event.bytesIn = bytesIn;
+            event.bytesOut = bytesOut;
+            event.commit();
+        }
+    }
+
+    // Vuelve al estado inicial por si un stream anterior quedo a medias
+    private void init(Cipher cipher, int opmode) {
+        try {
+            cipher.init(opmode, key, iv);
+        } catch (Exception e) {
+            throw new IllegalStateException("Error initializing cryptography", e);
+        }
+    }
+
     private byte[] deriveKeyIV(String password, int size)
             throws InvalidKeySpecException, NoSuchAlgorithmException {
+        KeyDerivationEvent event = new KeyDerivationEvent();
+        event.begin();
+
         SecretKeyFactory factory = SecretKeyFactory.getInstance(KEY_ALGORITHM);
         PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), SALT, ITERATIONS, size);
         SecretKey key = factory.generateSecret(spec);
+
+        if (event.shouldCommit()) {
+            event.algorithm = algorithm.name();
+            event.mode = mode.name();
+            event.bits = size;
+            event.iterations = ITERATIONS;
+            event.commit();
+        }
         return key.getEncoded();
     }
 }
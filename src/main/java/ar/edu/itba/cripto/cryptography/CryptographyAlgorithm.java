@@ -24,6 +24,11 @@ public enum CryptographyAlgorithm {
         return ivSize;
     }
 
+    // En bytes, el IV tiene el tamaño del bloque
+    public int getBlockSize() {
+        return ivSize / 8;
+    }
+
     public String getAlgorithm() {
         return algorithm;
     }
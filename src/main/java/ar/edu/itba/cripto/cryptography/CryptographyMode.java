@@ -27,4 +27,13 @@ public enum CryptographyMode {
     public boolean usesPadding() {
         return usesPadding;
     }
+
+    // Largo del texto cifrado sin derivar la clave: PKCS5 siempre agrega entre 1 y un bloque
+    public long getEncryptedLength(long messageLength, CryptographyAlgorithm algorithm) {
+        if (!usesPadding) {
+            return messageLength;
+        }
+        int blockSize = algorithm.getBlockSize();
+        return (messageLength / blockSize + 1) * blockSize;
+    }
 }
@@ -0,0 +1,119 @@
+package ar.edu.itba.cripto.cryptography;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+
+// Descifra de a bloques los length bytes cifrados que siguen en in.
+// No lee mas alla del texto cifrado ni cierra el stream de entrada.
+// close() solo registra el evento de JFR si no se llego al doFinal.
+class DecryptingInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    // Las lecturas chicas (el length del principio) descifran pocos bloques,
+    // asi un length invalido se detecta sin descifrar un chunk entero
+    private static final int MIN_READ = 64;
+
+    private final Cipher cipher;
+    private final InputStream in;
+    private final byte[] input;
+    private final byte[] single = new byte[1];
+    private byte[] buffer = new byte[0];
+    private int bufferPosition;
+    private int bufferLimit;
+    private final Cryptography cryptography;
+    private final CipherEvent event = new CipherEvent();
+    private final long length;
+    private long remaining;
+    private long bytesOut;
+    private boolean finished;
+    private boolean committed;
+
+    DecryptingInputStream(Cipher cipher, InputStream in, long length, Cryptography cryptography) {
+        this.cipher = cipher;
+        this.in = in;
+        this.length = length;
+        this.remaining = length;
+        this.input = new byte[(int) Math.min(CHUNK_SIZE, Math.max(length, 1))];
+        this.cryptography = cryptography;
+        event.begin();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (bufferPosition == bufferLimit) {
+            if (finished) {
+                return -1;
+            }
+            fill(len);
+        }
+        int n = Math.min(len, bufferLimit - bufferPosition);
+        System.arraycopy(buffer, bufferPosition, b, off, n);
+        bufferPosition += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return bufferLimit - bufferPosition;
+    }
+
+    private void fill(int wanted) throws IOException {
+        bufferPosition = 0;
+        try {
+            if (remaining == 0) {
+                finished = true;
+                bufferLimit = cipher.doFinal(buffer(cipher.getOutputSize(0)), 0);
+                bytesOut += bufferLimit;
+                commit();
+                return;
+            }
+            int length = (int) Math.min(Math.min(input.length, remaining), Math.max(wanted, MIN_READ));
+            int read = in.read(input, 0, length);
+            if (read < 0) {
+                throw new IOException("Encrypted data is truncated");
+            }
+            remaining -= read;
+            bufferLimit = cipher.update(input, 0, read, buffer(cipher.getOutputSize(read)));
+            bytesOut += bufferLimit;
+        } catch (IllegalBlockSizeException e) {
+            throw new IllegalStateException("Illegal block size", e);
+        } catch (BadPaddingException e) {
+            throw new IllegalStateException("Bad padding", e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error decrypting", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        commit();
+    }
+
+    private void commit() {
+        if (!committed) {
+            committed = true;
+            cryptography.commit(event, CipherEvent.DECRYPT, length - remaining, bytesOut);
+        }
+    }
+
+    private byte[] buffer(int size) {
+        if (buffer.length < size) {
+            buffer = new byte[size];
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,86 @@
+package ar.edu.itba.cripto.cryptography;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+
+// Cifra con Cipher.update a medida que llegan los bytes, sin guardar el mensaje.
+// close() escribe el ultimo bloque (doFinal) pero no cierra el stream de salida.
+class EncryptingOutputStream extends OutputStream {
+
+    private final Cipher cipher;
+    private final OutputStream out;
+    private final Cryptography cryptography;
+    private final CipherEvent event = new CipherEvent();
+    private final byte[] single = new byte[1];
+    private byte[] buffer = new byte[0];
+    private long bytesIn;
+    private long bytesOut;
+    private boolean closed;
+
+    EncryptingOutputStream(Cipher cipher, OutputStream out, Cryptography cryptography) {
+        this.cipher = cipher;
+        this.out = out;
+        this.cryptography = cryptography;
+        event.begin();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Stream closed");
+        }
+        int produced;
+        try {
+            produced = cipher.update(b, off, len, buffer(cipher.getOutputSize(len)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error encrypting", e);
+        }
+        out.write(buffer, 0, produced);
+        bytesIn += len;
+        bytesOut += produced;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        int produced;
+        try {
+            produced = cipher.doFinal(buffer(cipher.getOutputSize(0)), 0);
+        } catch (IllegalBlockSizeException e) {
+            throw new IllegalStateException("Illegal block size", e);
+        } catch (BadPaddingException e) {
+            throw new IllegalStateException("Bad padding", e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error encrypting", e);
+        }
+        out.write(buffer, 0, produced);
+        out.flush();
+        cryptography.commit(event, CipherEvent.ENCRYPT, bytesIn, bytesOut + produced);
+    }
+
+    private byte[] buffer(int size) {
+        if (buffer.length < size) {
+            buffer = new byte[size];
+        }
+        return buffer;
+    }
+}
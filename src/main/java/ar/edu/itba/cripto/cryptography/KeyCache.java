@@ -0,0 +1,95 @@
+package ar.edu.itba.cripto.cryptography;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache LRU de las claves + IV derivadas con PBKDF2, compartida por todo el proceso.
+// Las claves que salen del cache se pisan con ceros.
+public final class KeyCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private record Entry(String passwordHash, CryptographyAlgorithm algorithm, CryptographyMode mode) {}
+
+    private static final Map<Entry, byte[]> CACHE =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Entry, byte[]> eldest) {
+                    if (size() > MAX_ENTRIES) {
+                        Arrays.fill(eldest.getValue(), (byte) 0);
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private KeyCache() {}
+
+    // Copia de la clave + IV, o null si no esta
+    static byte[] get(String password, CryptographyAlgorithm algorithm, CryptographyMode mode) {
+        Entry entry = new Entry(hash(password), algorithm, mode);
+        synchronized (CACHE) {
+            byte[] keyIV = CACHE.get(entry);
+            if (keyIV == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return keyIV.clone();
+        }
+    }
+
+    static void put(String password, CryptographyAlgorithm algorithm, CryptographyMode mode, byte[] keyIV) {
+        Entry entry = new Entry(hash(password), algorithm, mode);
+        synchronized (CACHE) {
+            byte[] previous = CACHE.put(entry, keyIV.clone());
+            if (previous != null) {
+                Arrays.fill(previous, (byte) 0);
+            }
+        }
+    }
+
+    public static long hits() {
+        return hits.get();
+    }
+
+    public static long misses() {
+        return misses.get();
+    }
+
+    public static int size() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    public static void clear() {
+        synchronized (CACHE) {
+            Iterator<byte[]> values = CACHE.values().iterator();
+            while (values.hasNext()) {
+                Arrays.fill(values.next(), (byte) 0);
+                values.remove();
+            }
+        }
+    }
+
+    // No se guarda la password en si
+    private static String hash(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Error hashing password", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ar.edu.itba.cripto.cryptography;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento de JFR de cada PBKDF2 (las claves que salen de KeyCache no lo emiten)
+@Name("stegobmp.KeyDerivation")
+@Label("Key Derivation")
+@Category({"stegobmp", "Cryptography"})
+@Description("PBKDF2 key and IV derivation from a password")
+@StackTrace(false)
+final class KeyDerivationEvent extends Event {
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Key and IV Bits")
+    int bits;
+
+    @Label("Iterations")
+    int iterations;
+}
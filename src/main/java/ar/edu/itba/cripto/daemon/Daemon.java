@@ -0,0 +1,210 @@
+package ar.edu.itba.cripto.daemon;
+
+import ar.edu.itba.cripto.Configuration;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Proceso que queda escuchando en un Unix domain socket y corre los -embed/-extract que le
+// mandan los clientes con Configuration.run. Como la JVM no se reinicia, cada request usa
+// el codigo ya compilado por el JIT y las claves del KeyCache.
+// Corren a lo sumo maxRequests a la vez, los demas esperan en orden de llegada.
+public class Daemon implements AutoCloseable {
+
+    private final Path socket;
+    private final ServerSocketChannel server;
+    private final ExecutorService executor;
+    private final int maxRequests;
+    private final Semaphore running;
+    private final DaemonStats stats = new DaemonStats();
+
+    public Daemon(Path socket) throws IOException {
+        this(socket, Runtime.getRuntime().availableProcessors());
+    }
+
+    public Daemon(Path socket, int maxRequests) throws IOException {
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("maxRequests must be positive");
+        }
+        this.maxRequests = maxRequests;
+        this.running = new Semaphore(maxRequests, true);
+        this.socket = socket;
+        removeStaleSocket(socket);
+        this.server = bind(socket);
+        this.executor = newExecutor();
+    }
+
+    // Atiende requests hasta que se cierra el daemon
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                SocketChannel client = server.accept();
+                executor.execute(() -> handle(client));
+            }
+        } catch (ClosedChannelException e) {
+            // close()
+        }
+    }
+
+    public DaemonStats stats() {
+        return stats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        executor.shutdown();
+        Files.deleteIfExists(socket);
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(client));
+
+            String[] args = DaemonProtocol.readRequest(in);
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            int status = execute(args, new PrintStream(output, true), new PrintStream(errors, true));
+
+            DaemonProtocol.writeResponse(out, status, output.toString(), errors.toString());
+        } catch (IOException e) {
+            // El cliente se fue, no hay a quien avisarle
+        }
+    }
+
+    private int execute(String[] args, PrintStream out, PrintStream err) {
+        // Parseado igual que en run, asi --daemon=<socket> o -status tambien cuentan.
+        // Si no parsea, el error lo da run
+        int permits = 1;
+        try {
+            CommandLine cmd = Configuration.parse(args);
+            if (cmd.hasOption("status")) {
+                // No espera, asi se puede consultar con el daemon ocupado
+                out.print(stats);
+                return 0;
+            }
+            if (cmd.hasOption("daemon") || cmd.hasOption("client")) {
+                err.println("Invalid daemon request");
+                return 1;
+            }
+            // Un batch ya tiene su pool y su presupuesto de memoria, corre solo
+            if (cmd.hasOption("batch")) {
+                permits = maxRequests;
+            }
+        } catch (ParseException e) {
+            // Lo reporta run
+        }
+
+        stats.enqueue();
+        running.acquireUninterruptibly(permits);
+        stats.dequeue();
+        try {
+            return run(args, out, err);
+        } finally {
+            running.release(permits);
+        }
+    }
+
+    private int run(String[] args, PrintStream out, PrintStream err) {
+        long start = stats.begin();
+        int status = 1;
+        try {
+            status = Configuration.run(args, out, err);
+        } catch (RuntimeException e) {
+            err.println(e.getMessage() != null ? e.getMessage() : e.toString());
+        } catch (OutOfMemoryError e) {
+            // Como en un batch, falla el request y el daemon sigue atendiendo
+            err.println("Out of memory");
+        } catch (Error e) {
+            // StackOverflowError y compania: el cliente tiene que recibir una respuesta igual
+            err.println(e.toString());
+        } finally {
+            stats.end(start, status == 0);
+        }
+        return status;
+    }
+
+    // Si quedo el socket de un daemon anterior se borra, pero si hay uno atendiendo no se lo pisa
+    private static void removeStaleSocket(Path socket) throws IOException {
+        if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+        } catch (ConnectException e) {
+            // Nadie escucha
+            Files.delete(socket);
+            return;
+        }
+        throw new IOException("A daemon is already running on " + socket);
+    }
+
+    // Cualquiera que pueda conectarse corre embeds y extracts con los permisos del daemon, asi que
+    // el socket es solo del dueño. Se crea en un directorio privado y despues se mueve, para que
+    // no haya un momento en el que el socket existe con los permisos del umask
+    private static ServerSocketChannel bind(Path socket) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            Path parent = socket.toAbsolutePath().getParent();
+            if (!Files.getFileStore(parent).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                server.bind(UnixDomainSocketAddress.of(socket));
+                return server;
+            }
+
+            // createTempDirectory lo crea 0700
+            Path directory = Files.createTempDirectory(parent, ".stegobmp");
+            Path bound = directory.resolve("socket");
+            try {
+                server.bind(UnixDomainSocketAddress.of(bound));
+                Files.setPosixFilePermissions(bound, PosixFilePermissions.fromString("rw-------"));
+                Files.move(bound, socket, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(bound);
+                Files.delete(directory);
+            }
+            return server;
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+    }
+
+    // Un virtual thread por request si la JVM los tiene (21+), si no un pool que crece.
+    // Los threads que esperan en running no tienen mas que los argumentos del request
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService)
+                    Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "stegobmp-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ar.edu.itba.cripto.daemon;
+
+import ar.edu.itba.cripto.Configuration;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+// Le manda los argumentos al daemon y muestra lo que devuelve
+public final class DaemonClient {
+
+    private DaemonClient() {}
+
+    public static int send(Path socket, String[] args, PrintStream out, PrintStream err)
+            throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+
+            DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+            DataInputStream response = new DataInputStream(Channels.newInputStream(channel));
+
+            // El daemon no corre en el directorio del cliente
+            DaemonProtocol.writeRequest(request, Configuration.resolvePaths(args, Path.of("")));
+            DaemonProtocol.Response result = DaemonProtocol.readResponse(response);
+
+            out.print(result.output());
+            err.print(result.errors());
+            return result.status();
+        }
+    }
+}
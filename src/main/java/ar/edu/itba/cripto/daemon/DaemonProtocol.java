@@ -0,0 +1,65 @@
+package ar.edu.itba.cripto.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// request: cantidad de argumentos + argumentos
+// response: status + salida + errores
+final class DaemonProtocol {
+
+    private static final int MAX_ARGUMENTS = 256;
+
+    private DaemonProtocol() {}
+
+    static void writeRequest(DataOutputStream out, String[] args) throws IOException {
+        out.writeInt(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    static String[] readRequest(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_ARGUMENTS) {
+            throw new IOException("Invalid request");
+        }
+        String[] args = new String[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = in.readUTF();
+        }
+        return args;
+    }
+
+    static void writeResponse(DataOutputStream out, int status, String output, String errors)
+            throws IOException {
+        out.writeInt(status);
+        writeText(out, output);
+        writeText(out, errors);
+        out.flush();
+    }
+
+    static Response readResponse(DataInputStream in) throws IOException {
+        int status = in.readInt();
+        return new Response(status, readText(in), readText(in));
+    }
+
+    // writeUTF esta limitado a 64KB
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readText(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid response");
+        }
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    record Response(int status, String output, String errors) {}
+}
@@ -0,0 +1,78 @@
+package ar.edu.itba.cripto.daemon;
+
+import ar.edu.itba.cripto.cryptography.KeyCache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contadores del daemon, se consultan con -client <socket> -status
+public class DaemonStats {
+
+    private final AtomicLong waiting = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong maxInFlight = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    // Requests que esperan un lugar, ver Daemon.maxRequests
+    void enqueue() {
+        waiting.incrementAndGet();
+    }
+
+    void dequeue() {
+        waiting.decrementAndGet();
+    }
+
+    long begin() {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return System.nanoTime();
+    }
+
+    void end(long start, boolean succeeded) {
+        long elapsed = System.nanoTime() - start;
+        totalNanos.addAndGet(elapsed);
+        maxNanos.accumulateAndGet(elapsed, Math::max);
+        (succeeded ? completed : failed).incrementAndGet();
+        inFlight.decrementAndGet();
+    }
+
+    public long waiting() {
+        return waiting.get();
+    }
+
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    public long maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    public long completed() {
+        return completed.get();
+    }
+
+    public long failed() {
+        return failed.get();
+    }
+
+    @Override
+    public String toString() {
+        long requests = completed.get() + failed.get();
+        double meanMillis = requests == 0 ? 0 : totalNanos.get() / 1e6 / requests;
+        return String.format(
+                "Waiting: %d%nIn flight: %d (max %d)%nCompleted: %d%nFailed: %d%n"
+                        + "Latency: mean %.2f ms, max %d ms%nKey cache: %d hits, %d misses%n",
+                waiting.get(),
+                inFlight.get(),
+                maxInFlight.get(),
+                completed.get(),
+                failed.get(),
+                meanMillis,
+                TimeUnit.NANOSECONDS.toMillis(maxNanos.get()),
+                KeyCache.hits(),
+                KeyCache.misses());
+    }
+}
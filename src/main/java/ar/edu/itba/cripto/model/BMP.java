@@ -2,81 +2,241 @@ package ar.edu.itba.cripto.model;
 
 import ar.edu.itba.cripto.steganography.SteganographyMethod;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
 public class BMP {
     private int width;
     private int height;
     private int rowSize;
-    private byte[] pixelData;
+    private PixelFormat format;
+    private int bytesPerPixel;
+    // Heap (ByteBuffer.wrap) o MappedByteBuffer en modo PRIVATE (copy-on-write)
+    private ByteBuffer pixelData;
 
-    // only working with 24 bit BMPs
-    // Source: https://en.wikipedia.org/wiki/BMP_file_format#Example_1
-    private static final int BYTES_PER_PIXEL = 3;
-    private static final int FILE_HEADER_SIZE = 14;
-    private static final int BMP_INFO_HEADER_SIZE = 40;
-    private static final int HEADER_SIZE = FILE_HEADER_SIZE + BMP_INFO_HEADER_SIZE;
-    private static final int BITS_PER_PIXEL = BYTES_PER_PIXEL * 8;
-    private static final int COMPRESSION = 0;
+    // Lo que hay en el archivo antes y despues de la pixel data (header, mascaras, perfil de color),
+    // se escribe tal cual. null en las imagenes nuevas
+    private byte[] originalHeader;
+    private byte[] originalTrailer = new byte[0];
+
+    // De donde se cargo, para escribir la salida como una copia del archivo
+    private Path source;
+    private int dataOffset;
+
+    // 24 o 32 bits, ver BMPHeader y PixelFormat
+    private static final int FILE_HEADER_SIZE = BMPHeader.FILE_HEADER_SIZE;
+    private static final int HEADER_SIZE = BMPHeader.HEADER_SIZE;
+    private static final int COMPRESSION = BMPHeader.BI_RGB;
+
+    private static final VarHandle INT_LE =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Bytes de destino por franja al escalar en paralelo
+    private static final int SCALE_BAND_BYTES = 1024 * 1024;
 
     public static final int BLUE = 0xFF;
     public static final int GREEN = 0xFF00;
     public static final int RED = 0xFF0000;
 
     public BMP(String filePath) throws IOException {
-        loadBMP(filePath);
+        this(filePath, PixelStorage.AUTO);
+    }
+
+    public BMP(String filePath, PixelStorage storage) throws IOException {
+        CoverLoadEvent event = new CoverLoadEvent();
+        event.begin();
+
+        loadBMP(filePath, storage);
+
+        if (event.shouldCommit()) {
+            event.path = filePath;
+            event.bytes = pixelData.capacity();
+            event.width = width;
+            event.height = height;
+            event.bitsPerPixel = format.bitsPerPixel();
+            event.mapped = pixelData instanceof MappedByteBuffer;
+            event.commit();
+        }
     }
 
     public BMP(int width, int height) {
+        this(width, height, PixelFormat.BGR24);
+    }
+
+    public BMP(int width, int height, PixelFormat format) {
         this.width = width;
         this.height = height;
-        this.rowSize = getRowSize(width);
-        this.pixelData = new byte[height * rowSize];
+        setFormat(format);
+        this.pixelData = ByteBuffer.allocate(height * rowSize);
     }
 
-    private int getRowSize(int width) {
-        return (width * BYTES_PER_PIXEL + 3) & ~3;
+    private void setFormat(PixelFormat format) {
+        this.format = format;
+        this.bytesPerPixel = format.bytesPerPixel();
+        this.rowSize = format.rowStride(width);
     }
 
-    private void loadBMP(String filePath) throws IOException {
-        FileInputStream fis = new FileInputStream(filePath);
+    private void loadBMP(String filePath, PixelStorage storage) throws IOException {
+        Path path = Path.of(filePath);
 
-        // BMP Header
-        byte[] header = new byte[HEADER_SIZE];
-        if(fis.read(header, 0, HEADER_SIZE) != HEADER_SIZE) {
-            throw new IOException("Invalid BMP file");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            BMPHeader header = BMPHeader.read(channel);
+            this.width = header.width();
+            this.height = header.height();
+            setFormat(header.format());
+
+            this.source = path;
+            this.dataOffset = header.dataOffset();
+            long pixelDataLength = header.pixelDataLength();
+
+            originalHeader = new byte[dataOffset];
+            readFully(channel, ByteBuffer.wrap(originalHeader), 0);
+            long trailerOffset = dataOffset + pixelDataLength;
+            if (channel.size() > trailerOffset) {
+                originalTrailer = new byte[(int) Math.min(channel.size() - trailerOffset, Integer.MAX_VALUE)];
+                readFully(channel, ByteBuffer.wrap(originalTrailer), trailerOffset);
+            }
+
+            if (storage.maps(path, pixelDataLength)) {
+                // MapMode.PRIVATE necesita el canal abierto en escritura aunque nunca escriba al
+                // archivo, asi que se abre en escritura solo para mapear
+                // PRIVATE: las escrituras no llegan al archivo, el cover queda intacto
+                try (FileChannel writable =
+                        FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    pixelData = writable.map(FileChannel.MapMode.PRIVATE, dataOffset, pixelDataLength);
+                }
+            } else {
+                pixelData = ByteBuffer.allocate((int) pixelDataLength);
+                readFully(channel, pixelData, dataOffset);
+                pixelData.clear();
+            }
+        }
+    }
+
+    public void writeBMP(String filePath) throws IOException {
+        ImageWriteEvent event = new ImageWriteEvent();
+        event.begin();
+
+        byte[] header = originalHeader != null ? originalHeader : newHeader();
+        Path target = Path.of(filePath);
+
+        // Mapeado, la pixel data sin modificar se lee del cover: si la salida es el mismo archivo,
+        // truncarlo la borraria antes de escribirla. Se escribe al lado y se reemplaza
+        if (pixelData instanceof MappedByteBuffer && Files.exists(target) && Files.isSameFile(source, target)) {
+            Path partial = target.toAbsolutePath().resolveSibling(String.format(
+                    "%s.%016x.tmp", target.getFileName(), ThreadLocalRandom.current().nextLong()));
+            try {
+                try (FileChannel channel =
+                        FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    write(channel, header);
+                }
+                if (Files.getFileStore(target).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                    Files.setPosixFilePermissions(partial, Files.getPosixFilePermissions(target));
+                }
+                Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(partial);
+            }
+        } else {
+            try (FileChannel channel =
+                    FileChannel.open(
+                            target,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(channel, header);
+            }
+        }
+
+        if (event.shouldCommit()) {
+            event.path = filePath;
+            event.bytes = header.length + (long) pixelData.capacity() + originalTrailer.length;
+            event.commit();
         }
+    }
 
-        // Check for BM marker
-        if (header[0] != 'B' || header[1] != 'M') {
-            throw new IOException("Not a valid BMP file");
+    // Escribe la imagen copiando el archivo del que se cargo (FileChannel.transferTo, el kernel
+    // puede usar copy_file_range o reflink) y pisando solo los primeros modifiedBytes bytes de la
+    // pixel data, con la salida mapeada. Sirve si desde que se cargo solo cambio ese prefijo.
+    // Las imagenes que no vienen de un archivo se escriben enteras.
+    public void writeBMP(String filePath, int modifiedBytes) throws IOException {
+        if (source == null) {
+            writeBMP(filePath);
+            return;
         }
 
-        this.width = readInt(header, 18);
-        this.height = readInt(header, 22);
-        int bitsPerPixel = readShort(header, 28);
-        int compression = readInt(header, 30);
+        ImageWriteEvent event = new ImageWriteEvent();
+        event.begin();
+
+        Path target = Path.of(filePath);
+        int length = Math.min(Math.max(modifiedBytes, 0), pixelData.capacity());
+
+        // Si la salida es el mismo archivo alcanza con el parche
+        boolean inPlace = Files.exists(target) && Files.isSameFile(source, target);
+        try (FileChannel out = inPlace
+                ? FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(
+                        target,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            if (!inPlace) {
+                try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    for (long copied = 0; copied < size; ) {
+                        long transferred = in.transferTo(copied, size - copied, out);
+                        if (transferred <= 0) {
+                            throw new IOException("Cover file changed while copying");
+                        }
+                        copied += transferred;
+                    }
+                }
+            }
 
-        // Solo soportamos bmp con 24 bits por pixel sin compresion
-        if (bitsPerPixel != BITS_PER_PIXEL || compression != COMPRESSION) {
-            throw new IOException("Only 24-bit BMP files without compression are supported");
+            if (length > 0) {
+                MappedByteBuffer patch = out.map(FileChannel.MapMode.READ_WRITE, dataOffset, length);
+                patch.put(0, pixelData, 0, length);
+            }
         }
 
-        rowSize = getRowSize(width);
-        pixelData = new byte[rowSize * height];
+        if (event.shouldCommit()) {
+            event.path = filePath;
+            event.bytes = length;
+            event.delta = true;
+            event.commit();
+        }
+    }
 
-        int dataOffset = readInt(header, 10);
-        fis.skip(dataOffset - 54);
-        fis.read(pixelData);
-        fis.close();
+    private void write(FileChannel channel, byte[] header) throws IOException {
+        ByteBuffer[] buffers = {
+            ByteBuffer.wrap(header), pixelData.duplicate().clear(), ByteBuffer.wrap(originalTrailer)
+        };
+        while (buffers[1].hasRemaining() || buffers[2].hasRemaining()) {
+            channel.write(buffers);
+        }
     }
 
-    public void writeBMP(String filePath) throws IOException {
-        FileOutputStream fos = new FileOutputStream(filePath);
+    private byte[] newHeader() {
         byte[] header = new byte[HEADER_SIZE];
         header[0] = 'B';
         header[1] = 'M';
@@ -84,26 +244,29 @@ public class BMP {
         writeInt(header, 10, HEADER_SIZE);
         writeInt(header, 14, 40); // taken from wikipedia
         writeInt(header, 18, width);
-        writeInt(header, 22, height);
+        writeInt(header, 22, format.topDown() ? -height : height);
         writeShort(header, 26, 1); // planes
-        writeInt(header, 28, BITS_PER_PIXEL);
+        writeInt(header, 28, format.bitsPerPixel());
         writeInt(header, 30, COMPRESSION); // 0, no compression
-        writeInt(header, 34, pixelData.length); // raw length (includes padding)
-
-        fos.write(header);
-        fos.write(pixelData);
-        fos.close();
+        writeInt(header, 34, pixelData.capacity()); // raw length (includes padding)
+        return header;
     }
 
-    // aux para obtener datos de los headers
-    private int readInt(byte[] buffer, int offset) {
-        return ByteBuffer.wrap(buffer, offset, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
-    }
-
-    private int readShort(byte[] buffer, int offset) {
-        return ByteBuffer.wrap(buffer, offset, 2).order(ByteOrder.LITTLE_ENDIAN).getShort();
+    // FileChannel.read puede devolver menos bytes de los pedidos
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
     }
 
+    // aux para escribir los headers
     private void writeInt(byte[] buffer, int offset, int value) {
         ByteBuffer.wrap(buffer, offset, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(value);
     }
@@ -120,32 +283,42 @@ public class BMP {
         return height;
     }
 
+    public PixelFormat getPixelFormat() {
+        return format;
+    }
+
+    // Vista sin copias sobre la pixel data: lo que se escriba modifica la imagen.
+    // Cada llamada devuelve un buffer con su propia posicion/limite.
+    public ByteBuffer pixels() {
+        return pixelData.duplicate().clear();
+    }
+
     public byte[] getPixelData() {
-        byte[] copy = new byte[pixelData.length];
-        System.arraycopy(pixelData, 0, copy, 0, pixelData.length);
+        byte[] copy = new byte[pixelData.capacity()];
+        pixelData.get(0, copy);
         return copy;
     }
 
     public void setPixelData(byte[] pixelData) {
-        if(pixelData.length != this.pixelData.length) {
+        if(pixelData.length != this.pixelData.capacity()) {
             throw new IllegalArgumentException("Invalid pixel data length");
         }
-        System.arraycopy(pixelData, 0, this.pixelData, 0, pixelData.length);
+        this.pixelData.put(0, pixelData);
     }
 
     private int getIndex(int x, int y) {
         if (x < 0 || x >= width || y < 0 || y >= height) {
             throw new IllegalArgumentException("Coordinates out of bounds");
         }
-        return (height - y - 1) * rowSize + x * BYTES_PER_PIXEL;
+        return indexOf(x, y);
     }
 
     public int getRGB(int x, int y) {
         int pixelIndex = getIndex(x,y);
 
-        int blue = pixelData[pixelIndex] & 0xFF;
-        int green = pixelData[pixelIndex + 1] & 0xFF;
-        int red = pixelData[pixelIndex + 2] & 0xFF;
+        int blue = pixelData.get(pixelIndex) & 0xFF;
+        int green = pixelData.get(pixelIndex + 1) & 0xFF;
+        int red = pixelData.get(pixelIndex + 2) & 0xFF;
 
         return (red << 16) | (green << 8) | blue;
     }
@@ -153,30 +326,227 @@ public class BMP {
     public void setRGB(int x, int y, int rgb) {
         int pixelIndex = getIndex(x,y);
 
-        pixelData[pixelIndex] = (byte) (rgb & 0xFF);
-        pixelData[pixelIndex + 1] = (byte) ((rgb >> 8) & 0xFF);
-        pixelData[pixelIndex + 2] = (byte) ((rgb >> 16) & 0xFF);
+        pixelData.put(pixelIndex, (byte) (rgb & 0xFF));
+        pixelData.put(pixelIndex + 1, (byte) ((rgb >> 8) & 0xFF));
+        pixelData.put(pixelIndex + 2, (byte) ((rgb >> 16) & 0xFF));
+    }
+
+    // Accesos por fila / region: un solo chequeo de limites y copias en bloque.
+    // Igual que getRGB, y = 0 es la fila de arriba de la imagen.
+
+    // Vista sin copias de la fila y, con el padding (rowSize bytes, pixeles como en PixelFormat)
+    public ByteBuffer row(int y) {
+        checkRegion(0, y, width, 1);
+        return pixelData.slice(indexOf(0, y), rowSize);
     }
 
+    // Filas de arriba hacia abajo, cada una como en row(y)
+    public Iterable<ByteBuffer> rows() {
+        return () -> new Iterator<>() {
+            private int y = 0;
+
+            @Override
+            public boolean hasNext() {
+                return y < height;
+            }
+
+            @Override
+            public ByteBuffer next() {
+                if (y >= height) {
+                    throw new NoSuchElementException();
+                }
+                return row(y++);
+            }
+        };
+    }
+
+    public int[] getRow(int y) {
+        return getRegion(0, y, width, 1);
+    }
+
+    public void setRow(int y, int[] rgb) {
+        setRegion(0, y, width, 1, rgb);
+    }
+
+    public int[] getRegion(int x, int y, int w, int h) {
+        int[] rgb = new int[w * h];
+        getRegion(x, y, w, h, rgb, 0);
+        return rgb;
+    }
+
+    // rgb[offset + j*w + i] = getRGB(x + i, y + j)
+    public void getRegion(int x, int y, int w, int h, int[] rgb, int offset) {
+        checkRegion(x, y, w, h);
+        Objects.checkFromIndexSize(offset, w * h, rgb.length);
+
+        // Un byte de mas para leer cada pixel (BGR) como un int little-endian
+        int length = w * bytesPerPixel;
+        byte[] line = new byte[length + 1];
+        for (int j = 0; j < h; j++) {
+            pixelData.get(indexOf(x, y + j), line, 0, length);
+            for (int i = 0, b = 0, o = offset + j * w; i < w; i++, b += bytesPerPixel) {
+                rgb[o + i] = (int) INT_LE.get(line, b) & 0xFFFFFF;
+            }
+        }
+    }
+
+    public void setRegion(int x, int y, int w, int h, int[] rgb) {
+        setRegion(x, y, w, h, rgb, 0);
+    }
+
+    public void setRegion(int x, int y, int w, int h, int[] rgb, int offset) {
+        checkRegion(x, y, w, h);
+        Objects.checkFromIndexSize(offset, w * h, rgb.length);
+
+        // En 24 bits cada int pisa el primer byte del pixel siguiente, que se escribe despues.
+        // En 32 bits se lee la fila para no perder el alpha
+        int length = w * bytesPerPixel;
+        byte[] line = new byte[length + 1];
+        for (int j = 0; j < h; j++) {
+            int index = indexOf(x, y + j);
+            if (bytesPerPixel == 4) {
+                pixelData.get(index, line, 0, length);
+                for (int i = 0, b = 0, o = offset + j * w; i < w; i++, b += 4) {
+                    INT_LE.set(line, b, (rgb[o + i] & 0xFFFFFF) | (line[b + 3] << 24));
+                }
+            } else {
+                for (int i = 0, b = 0, o = offset + j * w; i < w; i++, b += 3) {
+                    INT_LE.set(line, b, rgb[o + i]);
+                }
+            }
+            pixelData.put(index, line, 0, length);
+        }
+    }
+
+    // Copia la region a dst como en la pixel data pero sin padding
+    // (w * bytesPerPixel bytes por fila, de arriba hacia abajo)
+    public void getRegion(int x, int y, int w, int h, ByteBuffer dst) {
+        checkRegion(x, y, w, h);
+        int length = w * bytesPerPixel;
+        if (dst.remaining() < (long) length * h) {
+            throw new BufferOverflowException();
+        }
+        for (int j = 0; j < h; j++) {
+            dst.put(dst.position(), pixelData, indexOf(x, y + j), length);
+            dst.position(dst.position() + length);
+        }
+    }
+
+    // Lo inverso de getRegion(x, y, w, h, ByteBuffer)
+    public void setRegion(int x, int y, int w, int h, ByteBuffer src) {
+        checkRegion(x, y, w, h);
+        int length = w * bytesPerPixel;
+        if (src.remaining() < (long) length * h) {
+            throw new BufferUnderflowException();
+        }
+        for (int j = 0; j < h; j++) {
+            pixelData.put(indexOf(x, y + j), src, src.position(), length);
+            src.position(src.position() + length);
+        }
+    }
+
+    // Como getIndex pero sin chequeo, para regiones ya validadas
+    private int indexOf(int x, int y) {
+        return format.storageRow(y, height) * rowSize + x * bytesPerPixel;
+    }
+
+    private void checkRegion(int x, int y, int w, int h) {
+        if (x < 0 || y < 0 || w < 0 || h < 0 || x > width - w || y > height - h) {
+            throw new IllegalArgumentException("Coordinates out of bounds");
+        }
+    }
+
+    // Cada fila de la imagen se expande una vez (cada pixel repetido scale veces)
+    // y se copia en las scale filas de destino. Las franjas de filas van en paralelo.
     public BMP scale(int scale) {
         if(scale < 1) {
             throw new IllegalArgumentException("Scale must be greater than 0");
         }
-        BMP bmp = new BMP(width * scale, height * scale);
+        long scaledWidth = (long) width * scale;
+        long scaledHeight = (long) height * scale;
+        long scaledRowSize = (scaledWidth * bytesPerPixel + 3) & ~3L;
+        // La pixel data va en un solo array
+        if (scaledRowSize * scaledHeight > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Scaled BMP is too large");
+        }
+        BMP bmp = new BMP((int) scaledWidth, (int) scaledHeight, format);
+        bmp.originalHeader = scaledHeader(bmp);
+
+        // Bottom-up o top-down, la fila r de la pixel data es la r*scale .. r*scale+scale-1 del destino
+        byte[] scaled = bmp.pixelData.array();
+        int rowsPerBand = Math.max(1, SCALE_BAND_BYTES / (bmp.rowSize * scale));
+        int bands = (height + rowsPerBand - 1) / rowsPerBand;
+        IntStream.range(0, bands)
+                .parallel()
+                .forEach(band -> scaleRows(
+                        scaled,
+                        bmp.rowSize,
+                        scale,
+                        band * rowsPerBand,
+                        Math.min(height, (band + 1) * rowsPerBand)));
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = getRGB(x, y);
-                int x_mul = x*scale;
-                int y_mul = y*scale;
-                for(int y_scaled = 0; y_scaled < scale; y_scaled++) {
-                    for (int x_scaled = 0; x_scaled < scale; x_scaled++) {
-                        bmp.setRGB(x_mul + x_scaled, y_mul + y_scaled, pixel);
+        return bmp;
+    }
+
+    // El header original con las nuevas dimensiones, asi se mantienen las mascaras y demas campos.
+    // Si habia algo despues de la pixel data (un perfil de color) sus offsets ya no valen y se
+    // escribe un header nuevo.
+    private byte[] scaledHeader(BMP bmp) {
+        if (originalHeader == null || originalTrailer.length > 0) {
+            return null;
+        }
+        byte[] header = originalHeader.clone();
+        int pixelDataLength = bmp.pixelData.capacity();
+        writeInt(header, 2, header.length + pixelDataLength);
+        writeInt(header, 18, bmp.width);
+        writeInt(header, 22, format.topDown() ? -bmp.height : bmp.height);
+        // En BI_RGB puede ser 0
+        if (ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(34) != 0) {
+            writeInt(header, 34, pixelDataLength);
+        }
+        return header;
+    }
+
+    private void scaleRows(byte[] scaled, int scaledRowSize, int scale, int from, int to) {
+        int pixelBytes = width * bytesPerPixel;
+        byte[] row = new byte[pixelBytes];
+
+        for (int r = from; r < to; r++) {
+            // La pixel data puede estar mapeada, se lee la fila entera de una
+            pixelData.get(r * rowSize, row);
+
+            int first = r * scale * scaledRowSize;
+            if (scale == 1) {
+                System.arraycopy(row, 0, scaled, first, pixelBytes);
+            } else if (bytesPerPixel == 4) {
+                // El pixel entero, con el alpha
+                int pixelRun = scale * 4;
+                int d = first;
+                for (int x = 0; x < pixelBytes; x += 4) {
+                    int pixel = (int) INT_LE.get(row, x);
+                    for (int end = d + pixelRun; d < end; d += 4) {
+                        INT_LE.set(scaled, d, pixel);
+                    }
+                }
+            } else {
+                int pixelRun = scale * 3;
+                int d = first;
+                for (int x = 0; x < pixelBytes; x += 3) {
+                    byte blue = row[x];
+                    byte green = row[x + 1];
+                    byte red = row[x + 2];
+                    for (int end = d + pixelRun; d < end; d += 3) {
+                        scaled[d] = blue;
+                        scaled[d + 1] = green;
+                        scaled[d + 2] = red;
                     }
                 }
             }
-        }
 
-        return bmp;
+            // El padding queda en 0 como en una imagen nueva
+            for (int k = 1; k < scale; k++) {
+                System.arraycopy(scaled, first, scaled, first + k * scaledRowSize, scaledRowSize);
+            }
+        }
     }
 }
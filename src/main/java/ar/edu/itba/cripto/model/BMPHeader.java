@@ -0,0 +1,148 @@
+package ar.edu.itba.cripto.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Lo que hace falta del header para saber la capacidad sin leer la pixel data.
+// height es siempre positivo, las imagenes top-down tienen format().topDown()
+public record BMPHeader(int width, int height, int dataOffset, PixelFormat format) {
+
+    // Source: https://en.wikipedia.org/wiki/BMP_file_format#Example_1
+    static final int FILE_HEADER_SIZE = 14;
+    static final int BMP_INFO_HEADER_SIZE = 40;
+    static final int HEADER_SIZE = FILE_HEADER_SIZE + BMP_INFO_HEADER_SIZE;
+
+    static final int BI_RGB = 0;
+    static final int BI_BITFIELDS = 3;
+
+    // Mascaras de BI_BITFIELDS (R, G, B y en los headers V3 en adelante, alpha)
+    private static final int MASKS_OFFSET = HEADER_SIZE;
+    private static final int MASKS_SIZE = 12;
+    private static final int ALPHA_MASK_OFFSET = MASKS_OFFSET + MASKS_SIZE;
+    private static final int V3_INFO_HEADER_SIZE = 56;
+    private static final int MAX_READ = ALPHA_MASK_OFFSET + 4;
+
+    public static BMPHeader read(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    static BMPHeader read(FileChannel channel) throws IOException {
+        // Con las mascaras de alpha son 70 bytes, un BMP de 24 bits puede tener solo 54
+        int length = (int) Math.min(MAX_READ, channel.size());
+        if (length < HEADER_SIZE) {
+            throw new IOException("Invalid BMP file");
+        }
+        ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Invalid BMP file");
+            }
+        }
+
+        // Check for BM marker
+        if (header.get(0) != 'B' || header.get(1) != 'M') {
+            throw new IOException("Not a valid BMP file");
+        }
+
+        int infoHeaderSize = header.getInt(14);
+        int width = header.getInt(18);
+        int height = header.getInt(22);
+        int bitsPerPixel = header.getShort(28);
+        int compression = header.getInt(30);
+
+        // BITMAPCOREHEADER (OS/2) no tiene compresion ni mascaras
+        if (infoHeaderSize < BMP_INFO_HEADER_SIZE) {
+            throw new IOException("Unsupported BMP header");
+        }
+
+        // 24 bits sin compresion, o 32 bits sin compresion o con mascaras BGRA
+        int headerEnd = FILE_HEADER_SIZE + infoHeaderSize;
+        int bytesPerPixel;
+        if (bitsPerPixel == 24 && compression == BI_RGB) {
+            bytesPerPixel = 3;
+        } else if (bitsPerPixel == 32 && (compression == BI_RGB || compression == BI_BITFIELDS)) {
+            bytesPerPixel = 4;
+            if (compression == BI_BITFIELDS) {
+                // Con BITMAPINFOHEADER las mascaras van despues del header
+                if (infoHeaderSize == BMP_INFO_HEADER_SIZE) {
+                    headerEnd += MASKS_SIZE;
+                }
+                checkMasks(header, infoHeaderSize);
+            }
+        } else {
+            throw new IOException("Only 24-bit and 32-bit BMP files without compression are supported");
+        }
+
+        // Altura negativa: la primera fila es la de arriba
+        if (width <= 0 || height == 0 || height == Integer.MIN_VALUE) {
+            throw new IOException("Invalid BMP dimensions");
+        }
+        PixelFormat format = new PixelFormat(bytesPerPixel, height < 0);
+
+        int dataOffset = header.getInt(10);
+        BMPHeader result = new BMPHeader(width, Math.abs(height), dataOffset, format);
+
+        // La pixel data se indexa con int
+        if (result.pixelDataLength() > Integer.MAX_VALUE) {
+            throw new IOException("BMP file is too large");
+        }
+        if (dataOffset < headerEnd || dataOffset + result.pixelDataLength() > channel.size()) {
+            throw new IOException("Truncated BMP file");
+        }
+
+        return result;
+    }
+
+    // Solo el layout B, G, R, alpha (o sin usar) de 32 bits, que es el de BI_RGB
+    private static void checkMasks(ByteBuffer header, int infoHeaderSize) throws IOException {
+        if (header.capacity() < ALPHA_MASK_OFFSET) {
+            throw new IOException("Truncated BMP file");
+        }
+        int alphaMask = 0;
+        if (infoHeaderSize >= V3_INFO_HEADER_SIZE) {
+            if (header.capacity() < MAX_READ) {
+                throw new IOException("Truncated BMP file");
+            }
+            alphaMask = header.getInt(ALPHA_MASK_OFFSET);
+        }
+        if (header.getInt(MASKS_OFFSET) != 0x00FF0000
+                || header.getInt(MASKS_OFFSET + 4) != 0x0000FF00
+                || header.getInt(MASKS_OFFSET + 8) != 0x000000FF
+                || (alphaMask != 0 && alphaMask != 0xFF000000)) {
+            throw new IOException("Only BGRA channel masks are supported");
+        }
+    }
+
+    // Los primeros length bytes de la pixel data (o toda si es mas corta), sin cargar el resto
+    public ByteBuffer readPixels(String filePath, int length) throws IOException {
+        ByteBuffer pixels = ByteBuffer.allocate((int) Math.min(length, pixelDataLength()));
+        try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+            while (pixels.hasRemaining()) {
+                if (channel.read(pixels, dataOffset + pixels.position()) < 0) {
+                    throw new IOException("Truncated BMP file");
+                }
+            }
+        }
+        return pixels.clear();
+    }
+
+    public int rowSize() {
+        return format.rowStride(width);
+    }
+
+    // Incluye el padding de cada fila, que tambien se usa para esconder
+    public long pixelDataLength() {
+        return (long) rowSize() * height;
+    }
+
+    // Bytes donde se puede esconder, ver PixelFormat
+    public int colorBytes() {
+        return format.colorBytes((int) pixelDataLength());
+    }
+}
@@ -0,0 +1,39 @@
+package ar.edu.itba.cripto.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento de JFR de new BMP(path). Sin una grabacion activa begin/commit no hacen nada
+// y los campos no se calculan
+@Name("stegobmp.CoverLoad")
+@Label("Cover Load")
+@Category({"stegobmp", "Image"})
+@Description("A BMP read from disk: header, pixel data and trailer")
+@StackTrace(false)
+final class CoverLoadEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Pixel Data")
+    @DataAmount
+    long bytes;
+
+    @Label("Width")
+    int width;
+
+    @Label("Height")
+    int height;
+
+    @Label("Bits per Pixel")
+    int bitsPerPixel;
+
+    @Label("Mapped")
+    @Description("Pixel data mapped copy-on-write instead of read to the heap")
+    boolean mapped;
+}
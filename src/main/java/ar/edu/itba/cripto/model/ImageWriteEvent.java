@@ -0,0 +1,29 @@
+package ar.edu.itba.cripto.model;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento de JFR de BMP.writeBMP
+@Name("stegobmp.ImageWrite")
+@Label("Image Write")
+@Category({"stegobmp", "Image"})
+@Description("A BMP written to disk, whole or as a patched copy of its cover")
+@StackTrace(false)
+final class ImageWriteEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes Written")
+    @Description("Bytes written by the process, without the copied part of a delta write")
+    @DataAmount
+    long bytes;
+
+    @Label("Delta")
+    boolean delta;
+}
@@ -0,0 +1,64 @@
+package ar.edu.itba.cripto.model;
+
+// Como estan guardados los pixeles en la pixel data.
+// Los canales van en orden B, G, R (y alpha o un byte sin usar en 32 bits), cada fila
+// ocupa rowStride bytes (multiplo de 4) y las filas van de abajo hacia arriba salvo topDown.
+//
+// Los metodos de esteganografia trabajan sobre los bytes de color: todos los bytes de la
+// pixel data en 24 bits (incluido el padding, como siempre) y B, G, R de cada pixel en 32 bits.
+// El byte de color c esta en pixelIndex(c).
+public record PixelFormat(int bytesPerPixel, boolean topDown) {
+
+    public static final int BLUE_OFFSET = 0;
+    public static final int GREEN_OFFSET = 1;
+    public static final int RED_OFFSET = 2;
+    public static final int ALPHA_OFFSET = 3;
+
+    public static final int COLOR_BYTES = 3;
+
+    public static final PixelFormat BGR24 = new PixelFormat(3, false);
+    public static final PixelFormat BGRA32 = new PixelFormat(4, false);
+
+    public PixelFormat {
+        if (bytesPerPixel != 3 && bytesPerPixel != 4) {
+            throw new IllegalArgumentException("Only 24-bit and 32-bit pixels are supported");
+        }
+    }
+
+    public int bitsPerPixel() {
+        return bytesPerPixel * 8;
+    }
+
+    public int rowStride(int width) {
+        return (width * bytesPerPixel + 3) & ~3;
+    }
+
+    // Fila de la pixel data con la fila y de la imagen (y = 0 es la de arriba)
+    public int storageRow(int y, int height) {
+        return topDown ? y : height - y - 1;
+    }
+
+    // Bytes de color en los primeros dataLength bytes de la pixel data
+    public int colorBytes(int dataLength) {
+        if (bytesPerPixel == COLOR_BYTES) {
+            return dataLength;
+        }
+        return (dataLength / 4) * COLOR_BYTES + Math.min(dataLength % 4, COLOR_BYTES);
+    }
+
+    // Bytes de pixel data que hay que leer para tener colorBytes bytes de color
+    public int dataLength(int colorBytes) {
+        if (bytesPerPixel == COLOR_BYTES) {
+            return colorBytes;
+        }
+        return (colorBytes + COLOR_BYTES - 1) / COLOR_BYTES * 4;
+    }
+
+    // Posicion en la pixel data del byte de color c
+    public int pixelIndex(long c) {
+        if (bytesPerPixel == COLOR_BYTES) {
+            return (int) c;
+        }
+        return (int) ((c / COLOR_BYTES) * 4 + c % COLOR_BYTES);
+    }
+}
@@ -0,0 +1,29 @@
+package ar.edu.itba.cripto.model;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public enum PixelStorage {
+    // Pixel data copiada a un byte[] en el heap
+    HEAP,
+    // Pixel data mapeada en memoria (copy-on-write), no ocupa heap
+    MMAP,
+    // Heap para archivos chicos, mmap para el resto
+    AUTO;
+
+    // A partir de este tamaño conviene mapear en vez de copiar
+    private static final long MMAP_THRESHOLD = 8L * 1024 * 1024;
+
+    private boolean useMapping(long pixelDataLength) {
+        return switch (this) {
+            case HEAP -> false;
+            case MMAP -> true;
+            case AUTO -> pixelDataLength >= MMAP_THRESHOLD;
+        };
+    }
+
+    // MapMode.PRIVATE necesita el canal abierto en escritura: un cover de solo lectura va al heap
+    public boolean maps(Path cover, long pixelDataLength) {
+        return useMapping(pixelDataLength) && Files.isWritable(cover);
+    }
+}
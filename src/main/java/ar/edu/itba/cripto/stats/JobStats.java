@@ -0,0 +1,208 @@
+package ar.edu.itba.cripto.stats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// -stats: un registro JSON (una linea) por job con el tiempo de cada fase, los bytes, la
+// capacidad usada y lo que aloco el thread del job.
+// Las fases no se solapan: entrar a una pausa la anterior, asi por ejemplo el cifrado no
+// incluye el embed de lo que va cifrando. Todo lo que no es de otra fase cuenta como parse.
+// No es thread safe, cada job tiene el suyo.
+public final class JobStats {
+
+    public enum Phase {
+        PARSE("parse"),
+        LOAD_COVER("loadCover"),
+        READ_INPUT("readInput"),
+        KDF("kdf"),
+        COMPRESS("compress"),
+        ENCRYPT("encrypt"),
+        EMBED("embed"),
+        DETECT("detect"),
+        EXTRACT("extract"),
+        DECRYPT("decrypt"),
+        DECOMPRESS("decompress"),
+        WRITE("write");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final List<Phase> EMBED_PHASES = List.of(
+            Phase.PARSE, Phase.LOAD_COVER, Phase.READ_INPUT, Phase.KDF,
+            Phase.COMPRESS, Phase.ENCRYPT, Phase.EMBED, Phase.WRITE);
+    private static final List<Phase> EXTRACT_PHASES = List.of(
+            Phase.PARSE, Phase.LOAD_COVER, Phase.KDF, Phase.DETECT,
+            Phase.EXTRACT, Phase.DECRYPT, Phase.DECOMPRESS, Phase.WRITE);
+
+    // Los jobs de un batch pueden escribir al mismo archivo a la vez
+    private static final Object FILE_LOCK = new Object();
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    private final String operation;
+    private final long start;
+    private final long startAllocated;
+    private final long[] nanos = new long[Phase.values().length];
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    private Phase current = Phase.PARSE;
+    private long since;
+
+    // start: System.nanoTime() de cuando empezo el job, antes de parsear los argumentos
+    public JobStats(String operation, long start) {
+        this.operation = operation;
+        this.start = start;
+        this.since = start;
+        this.startAllocated = allocatedBytes();
+    }
+
+    // Pasa a phase y devuelve la fase anterior, para volver con enter(previous)
+    public Phase enter(Phase phase) {
+        long now = System.nanoTime();
+        nanos[current.ordinal()] += now - since;
+        Phase previous = current;
+        current = phase;
+        since = now;
+        return previous;
+    }
+
+    // Un campo del registro: String, Number, Boolean o null
+    public void put(String key, Object value) {
+        fields.put(key, value);
+    }
+
+    // Lo que se escriba en out cuenta como phase
+    public OutputStream time(Phase phase, OutputStream out) {
+        return new PhaseOutputStream(this, phase, out);
+    }
+
+    // Lo que se lea de in cuenta como phase
+    public InputStream time(Phase phase, InputStream in) {
+        return new PhaseInputStream(this, phase, in);
+    }
+
+    // destination: un archivo al que se le agrega la linea, o "-" para out
+    public void write(String destination, int status, PrintStream out) throws IOException {
+        String json = toJson(status);
+        if (destination.equals("-")) {
+            out.println(json);
+            return;
+        }
+        byte[] line = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (FILE_LOCK) {
+            Files.write(Path.of(destination), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    public String toJson(int status) {
+        enter(current);
+        long wall = System.nanoTime() - start;
+        long allocated = allocatedBytes();
+
+        StringBuilder json = new StringBuilder("{");
+        field(json, "operation", operation);
+        field(json, "status", status);
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            field(json, entry.getKey(), entry.getValue());
+        }
+
+        field(json, "wallMs", millis(wall));
+        json.append("\"phasesMs\":{");
+        List<Phase> phases = operation.equals("extract") ? EXTRACT_PHASES : EMBED_PHASES;
+        for (Phase phase : phases) {
+            field(json, phase.key, millis(nanos[phase.ordinal()]));
+        }
+        json.setLength(json.length() - 1);
+        json.append("},");
+
+        // MB/s del payload (el archivo oculto o extraido) sobre el tiempo total
+        Object payload = fields.get(operation.equals("extract") ? "outputBytes" : "inputBytes");
+        if (payload instanceof Number bytes && wall > 0) {
+            field(json, "throughputMBps", round(bytes.doubleValue() / 1e6 / (wall / 1e9)));
+        }
+        if (fields.get("hiddenBytes") instanceof Number hidden
+                && fields.get("capacityBytes") instanceof Number capacity
+                && capacity.longValue() > 0) {
+            field(json, "capacityUtilization", round(hidden.doubleValue() / capacity.doubleValue()));
+        }
+        field(json, "allocatedBytes", allocated < 0 || startAllocated < 0 ? null : allocated - startAllocated);
+
+        json.setLength(json.length() - 1);
+        return json.append('}').toString();
+    }
+
+    private static void field(StringBuilder json, String key, Object value) {
+        string(json, key);
+        json.append(':');
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else {
+            string(json, value.toString());
+        }
+        json.append(',');
+    }
+
+    private static void string(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    // 3 decimales, con punto aunque el locale use coma
+    private static double round(double value) {
+        return Double.parseDouble(String.format(Locale.ROOT, "%.3f", value));
+    }
+
+    // Bytes alocados por el thread actual desde que arranco, -1 si la JVM no lo soporta.
+    // No incluye lo que alocan otros threads (-threads, el pool de los streams paralelos)
+    private static long allocatedBytes() {
+        if (THREADS == null || !THREADS.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            return threads;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package ar.edu.itba.cripto.stats;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Cuenta el tiempo de cada read como una fase de JobStats
+final class PhaseInputStream extends InputStream {
+
+    private final JobStats stats;
+    private final JobStats.Phase phase;
+    private final InputStream in;
+
+    PhaseInputStream(JobStats stats, JobStats.Phase phase, InputStream in) {
+        this.stats = stats;
+        this.phase = phase;
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        JobStats.Phase previous = stats.enter(phase);
+        try {
+            return in.read();
+        } finally {
+            stats.enter(previous);
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        JobStats.Phase previous = stats.enter(phase);
+        try {
+            return in.read(b, off, len);
+        } finally {
+            stats.enter(previous);
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        return in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        JobStats.Phase previous = stats.enter(phase);
+        try {
+            in.close();
+        } finally {
+            stats.enter(previous);
+        }
+    }
+}
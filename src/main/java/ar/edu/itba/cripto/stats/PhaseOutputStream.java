@@ -0,0 +1,59 @@
+package ar.edu.itba.cripto.stats;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Cuenta el tiempo de cada write como una fase de JobStats
+final class PhaseOutputStream extends OutputStream {
+
+    private final JobStats stats;
+    private final JobStats.Phase phase;
+    private final OutputStream out;
+
+    PhaseOutputStream(JobStats stats, JobStats.Phase phase, OutputStream out) {
+        this.stats = stats;
+        this.phase = phase;
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        JobStats.Phase previous = stats.enter(phase);
+        try {
+            out.write(b);
+        } finally {
+            stats.enter(previous);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        JobStats.Phase previous = stats.enter(phase);
+        try {
+            out.write(b, off, len);
+        } finally {
+            stats.enter(previous);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        JobStats.Phase previous = stats.enter(phase);
+        try {
+            out.flush();
+        } finally {
+            stats.enter(previous);
+        }
+    }
+
+    // Cerrar puede hacer trabajo (el ultimo bloque cifrado, los patrones de LSBI)
+    @Override
+    public void close() throws IOException {
+        JobStats.Phase previous = stats.enter(phase);
+        try {
+            out.close();
+        } finally {
+            stats.enter(previous);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ar.edu.itba.cripto.steganalysis;
+
+import ar.edu.itba.cripto.model.BMP;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Analiza un BMP o todos los .bmp de un directorio. Los archivos se cargan de a varios a la vez
+// para que el disco no espere a la CPU; cada uno se reparte en tiles en el ForkJoinPool comun.
+public class Analyzer {
+
+    private final List<Path> files;
+    private final int jobs;
+
+    public Analyzer(Path path, int jobs) throws IOException {
+        this.files = listFiles(path);
+        this.jobs = jobs;
+    }
+
+    // Devuelve 0 si se pudieron analizar todos los archivos
+    public int run(PrintStream out, PrintStream err) {
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        long start = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(jobs, Math.max(files.size(), 1)));
+        for (Path file : files) {
+            pool.execute(() -> {
+                String line;
+                try {
+                    BMP image = new BMP(file.toString());
+                    SteganalysisReport report = Steganalysis.analyze(image);
+                    bytes.addAndGet(image.pixels().capacity());
+                    line = file + ": " + report;
+                } catch (IOException | RuntimeException e) {
+                    failed.incrementAndGet();
+                    line = file + ": error: " + e.getMessage();
+                }
+                synchronized (out) {
+                    out.println(line);
+                }
+            });
+        }
+
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Sigue esperando
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            err.println("Analysis interrupted");
+            return 1;
+        }
+
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        out.println(String.format(Locale.ROOT, "Analyzed %d files (%d failed) in %.2f s, %.1f MB/s of pixel data",
+                files.size(), failed.get(), seconds, bytes.get() / 1e6 / seconds));
+
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    private static List<Path> listFiles(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            List<Path> files = new ArrayList<>();
+            walk.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".bmp"))
+                    .sorted()
+                    .forEach(files::add);
+            return files;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ar.edu.itba.cripto.steganalysis;
+
+// 1 - CDF de la chi-cuadrado, con la gamma incompleta regularizada (Numerical Recipes, 6.2)
+final class ChiSquareDistribution {
+
+    private static final int MAX_ITERATIONS = 1000;
+    private static final double EPSILON = 1e-12;
+    private static final double FPMIN = 1e-300;
+
+    private ChiSquareDistribution() {}
+
+    static double survival(double chi, int dof) {
+        if (chi <= 0) {
+            return 1;
+        }
+        return upperGamma(dof / 2.0, chi / 2.0);
+    }
+
+    // Q(a, x) = 1 - P(a, x)
+    private static double upperGamma(double a, double x) {
+        if (x < a + 1) {
+            return 1 - lowerSeries(a, x);
+        }
+        return upperContinuedFraction(a, x);
+    }
+
+    private static double lowerSeries(double a, double x) {
+        double ap = a;
+        double sum = 1 / a;
+        double delta = sum;
+        for (int n = 0; n < MAX_ITERATIONS; n++) {
+            ap++;
+            delta *= x / ap;
+            sum += delta;
+            if (Math.abs(delta) < Math.abs(sum) * EPSILON) {
+                break;
+            }
+        }
+        return sum * Math.exp(-x + a * Math.log(x) - logGamma(a));
+    }
+
+    private static double upperContinuedFraction(double a, double x) {
+        double b = x + 1 - a;
+        double c = 1 / FPMIN;
+        double d = 1 / b;
+        double h = d;
+        for (int i = 1; i < MAX_ITERATIONS; i++) {
+            double an = -i * (i - a);
+            b += 2;
+            d = an * d + b;
+            if (Math.abs(d) < FPMIN) {
+                d = FPMIN;
+            }
+            c = b + an / c;
+            if (Math.abs(c) < FPMIN) {
+                c = FPMIN;
+            }
+            d = 1 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < EPSILON) {
+                break;
+            }
+        }
+        return Math.exp(-x + a * Math.log(x) - logGamma(a)) * h;
+    }
+
+    // Lanczos
+    private static double logGamma(double x) {
+        double[] coefficients = {
+            76.18009172947146, -86.50532032941677, 24.01409824083091,
+            -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5
+        };
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
@@ -0,0 +1,133 @@
+package ar.edu.itba.cripto.steganalysis;
+
+import ar.edu.itba.cripto.model.BMP;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+// Chi-square (Westfeld y Pfitzmann) y RS (Fridrich, Goljan y Du) sobre la pixel data
+public final class Steganalysis {
+
+    // Con menos apariciones esperadas por par el chi-square no es confiable
+    private static final int MIN_EXPECTED = 5;
+
+    // p-value a partir del cual se considera que la franja tiene datos escondidos
+    private static final double DETECTION_THRESHOLD = 0.95;
+
+    private Steganalysis() {}
+
+    public static SteganalysisReport analyze(BMP image) {
+        return analyze(image, ForkJoinPool.commonPool());
+    }
+
+    public static SteganalysisReport analyze(BMP image, ForkJoinPool pool) {
+        ByteBuffer pixels = image.pixels();
+        int height = image.getHeight();
+        int rowSize = pixels.capacity() / height;
+        long[] counters =
+                pool.invoke(new TileTask(
+                        pixels,
+                        image.getPixelFormat().bytesPerPixel(),
+                        rowSize,
+                        image.getWidth(),
+                        height,
+                        0,
+                        height));
+
+        // Histogramas acumulados desde el principio de la pixel data, franja por franja
+        long[] histogram = new long[TileTask.HISTOGRAM_SIZE];
+        double[] chiSquare = new double[3];
+        double prefix = 0;
+        for (int band = 0; band < TileTask.BANDS; band++) {
+            int offset = TileTask.HISTOGRAMS + band * TileTask.HISTOGRAM_SIZE;
+            for (int i = 0; i < TileTask.HISTOGRAM_SIZE; i++) {
+                histogram[i] += counters[offset + i];
+            }
+
+            double detected = 0;
+            for (int channel = 0; channel < 3; channel++) {
+                chiSquare[channel] = chiSquare(histogram, channel * 256);
+                detected = Math.max(detected, chiSquare[channel]);
+            }
+            if (detected >= DETECTION_THRESHOLD) {
+                prefix = rowsUpTo(band, height) / (double) height;
+            }
+        }
+
+        return new SteganalysisReport(chiSquare, prefix, rsEstimate(counters));
+    }
+
+    // Filas hasta el final de la franja
+    private static int rowsUpTo(int band, int height) {
+        int rows = 0;
+        while (rows < height && TileTask.band(rows, height) <= band) {
+            rows++;
+        }
+        return rows;
+    }
+
+    // Probabilidad de que los pares de valores esten igualados por embedding: cerca de 1 si hay LSB
+    private static double chiSquare(long[] histogram, int offset) {
+        double chi = 0;
+        int pairs = 0;
+        for (int k = 0; k < 256; k += 2) {
+            long even = histogram[offset + k];
+            long odd = histogram[offset + k + 1];
+            double expected = (even + odd) / 2.0;
+            if (expected < MIN_EXPECTED) {
+                continue;
+            }
+            chi += (even - expected) * (even - expected) / expected;
+            pairs++;
+        }
+        if (pairs < 2) {
+            return 0;
+        }
+        return ChiSquareDistribution.survival(chi, pairs - 1);
+    }
+
+    // Fraccion estimada de pixeles con el LSB modificado
+    private static double rsEstimate(long[] counters) {
+        double groups = counters[TileTask.GROUPS];
+        if (groups == 0) {
+            return 0;
+        }
+        double rm = counters[TileTask.RS] / groups;
+        double sm = counters[TileTask.RS + 1] / groups;
+        double rnm = counters[TileTask.RS + 2] / groups;
+        double snm = counters[TileTask.RS + 3] / groups;
+        double rmFlipped = counters[TileTask.RS + 4] / groups;
+        double smFlipped = counters[TileTask.RS + 5] / groups;
+        double rnmFlipped = counters[TileTask.RS + 6] / groups;
+        double snmFlipped = counters[TileTask.RS + 7] / groups;
+
+        double d0 = rm - sm;
+        double d1 = rmFlipped - smFlipped;
+        double dn0 = rnm - snm;
+        double dn1 = rnmFlipped - snmFlipped;
+
+        double a = 2 * (d1 + d0);
+        double b = dn0 - dn1 - d1 - 3 * d0;
+        double c = d0 - dn0;
+
+        double x;
+        if (Math.abs(a) < 1e-12) {
+            if (Math.abs(b) < 1e-12) {
+                return 0;
+            }
+            x = -c / b;
+        } else {
+            double discriminant = b * b - 4 * a * c;
+            if (discriminant < 0) {
+                return 0;
+            }
+            double root = Math.sqrt(discriminant);
+            double x1 = (-b + root) / (2 * a);
+            double x2 = (-b - root) / (2 * a);
+            x = Math.abs(x1) < Math.abs(x2) ? x1 : x2;
+        }
+
+        double estimate = x / (x - 0.5);
+        return Math.max(0, Math.min(1, estimate));
+    }
+}
@@ -0,0 +1,27 @@
+package ar.edu.itba.cripto.steganalysis;
+
+import java.util.Locale;
+
+// chiSquare: p-value por canal (B, G, R), cerca de 1 si hay LSB en toda la imagen.
+// chiSquarePrefix: fraccion de la pixel data, desde el principio, en la que el chi-square
+// detecta LSB (los metodos escriben en forma secuencial).
+// rs: fraccion estimada de pixeles modificados.
+public record SteganalysisReport(double[] chiSquare, double chiSquarePrefix, double rs) {
+
+    public double chiSquareMax() {
+        return Math.max(chiSquare[0], Math.max(chiSquare[1], chiSquare[2]));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                Locale.ROOT,
+                "chi-square p=%.4f (B %.4f, G %.4f, R %.4f), chi-square prefix=%.1f%%, RS estimate=%.4f",
+                chiSquareMax(),
+                chiSquare[0],
+                chiSquare[1],
+                chiSquare[2],
+                chiSquarePrefix * 100,
+                rs);
+    }
+}
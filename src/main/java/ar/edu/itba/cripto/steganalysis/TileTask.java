@@ -0,0 +1,147 @@
+package ar.edu.itba.cripto.steganalysis;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.RecursiveTask;
+
+// Contadores de un rango de filas. Cada tile llena su propio long[] y se suman al hacer join,
+// asi los threads no comparten nada mientras cuentan.
+final class TileTask extends RecursiveTask<long[]> {
+
+    // Las filas se agrupan en franjas, en el orden de la pixel data, para poder ver
+    // hasta donde llega un mensaje escondido en forma secuencial
+    static final int BANDS = 32;
+
+    // Layout de los contadores
+    static final int HISTOGRAMS = 0; // BANDS franjas x 3 canales x 256 valores (B, G, R)
+    static final int HISTOGRAM_SIZE = 3 * 256;
+    static final int RS = BANDS * HISTOGRAM_SIZE; // R_M, S_M, R_-M, S_-M y lo mismo con los LSB invertidos
+    static final int GROUPS = RS + 8;
+    static final int SIZE = GROUPS + 1;
+
+    // RS usa grupos de 4 pixeles consecutivos del mismo canal, con mascara [0, 1, 1, 0]
+    private static final int GROUP = 4;
+
+    private static final int MIN_TILE_BYTES = 256 * 1024;
+
+    private final ByteBuffer pixels;
+    // 3 o 4 (el alpha no se cuenta)
+    private final int bytesPerPixel;
+    private final int rowSize;
+    private final int width;
+    private final int height;
+    private final int fromRow;
+    private final int toRow;
+
+    TileTask(
+            ByteBuffer pixels, int bytesPerPixel, int rowSize, int width, int height, int fromRow, int toRow) {
+        this.pixels = pixels;
+        this.bytesPerPixel = bytesPerPixel;
+        this.rowSize = rowSize;
+        this.width = width;
+        this.height = height;
+        this.fromRow = fromRow;
+        this.toRow = toRow;
+    }
+
+    @Override
+    protected long[] compute() {
+        int rows = toRow - fromRow;
+        if ((long) rows * rowSize <= MIN_TILE_BYTES || rows < 2) {
+            return count();
+        }
+
+        int middle = fromRow + rows / 2;
+        TileTask left = new TileTask(pixels, bytesPerPixel, rowSize, width, height, fromRow, middle);
+        TileTask right = new TileTask(pixels, bytesPerPixel, rowSize, width, height, middle, toRow);
+        left.fork();
+        long[] counters = right.compute();
+        long[] other = left.join();
+        for (int i = 0; i < SIZE; i++) {
+            counters[i] += other[i];
+        }
+        return counters;
+    }
+
+    private long[] count() {
+        long[] counters = new long[SIZE];
+        byte[] row = new byte[width * bytesPerPixel];
+        int pixel = bytesPerPixel;
+
+        // Contadores RS en variables locales, se pasan al array al final
+        long rm = 0, sm = 0, rnm = 0, snm = 0;
+        long rmFlipped = 0, smFlipped = 0, rnmFlipped = 0, snmFlipped = 0;
+        long groups = 0;
+
+        for (int y = fromRow; y < toRow; y++) {
+            pixels.get(y * rowSize, row);
+
+            int histogram = HISTOGRAMS + band(y, height) * HISTOGRAM_SIZE;
+            for (int i = 0; i < row.length; i += pixel) {
+                counters[histogram + (row[i] & 0xFF)]++;
+                counters[histogram + 256 + (row[i + 1] & 0xFF)]++;
+                counters[histogram + 512 + (row[i + 2] & 0xFF)]++;
+            }
+
+            for (int channel = 0; channel < 3; channel++) {
+                for (int x = 0; x + GROUP <= width; x += GROUP) {
+                    int index = x * pixel + channel;
+                    int v0 = row[index] & 0xFF;
+                    int v1 = row[index + pixel] & 0xFF;
+                    int v2 = row[index + 2 * pixel] & 0xFF;
+                    int v3 = row[index + 3 * pixel] & 0xFF;
+
+                    int f = smoothness(v0, v1, v2, v3);
+                    int fm = smoothness(v0, flip(v1), flip(v2), v3);
+                    int fnm = smoothness(v0, shift(v1), shift(v2), v3);
+
+                    // La misma imagen con todos los LSB invertidos
+                    int w0 = flip(v0), w1 = flip(v1), w2 = flip(v2), w3 = flip(v3);
+                    int fw = smoothness(w0, w1, w2, w3);
+                    int fwm = smoothness(w0, v1, v2, w3);
+                    int fwnm = smoothness(w0, shift(w1), shift(w2), w3);
+
+                    // Regular si la mascara aumenta el ruido, singular si lo disminuye.
+                    // Con el bit de signo de la resta, sin branches (con datos ocultos son impredecibles)
+                    rm += (f - fm) >>> 31;
+                    sm += (fm - f) >>> 31;
+                    rnm += (f - fnm) >>> 31;
+                    snm += (fnm - f) >>> 31;
+                    rmFlipped += (fw - fwm) >>> 31;
+                    smFlipped += (fwm - fw) >>> 31;
+                    rnmFlipped += (fw - fwnm) >>> 31;
+                    snmFlipped += (fwnm - fw) >>> 31;
+                    groups++;
+                }
+            }
+        }
+
+        counters[RS] = rm;
+        counters[RS + 1] = sm;
+        counters[RS + 2] = rnm;
+        counters[RS + 3] = snm;
+        counters[RS + 4] = rmFlipped;
+        counters[RS + 5] = smFlipped;
+        counters[RS + 6] = rnmFlipped;
+        counters[RS + 7] = snmFlipped;
+        counters[GROUPS] = groups;
+        return counters;
+    }
+
+    static int band(int row, int height) {
+        return (int) ((long) row * BANDS / height);
+    }
+
+    private static int smoothness(int v0, int v1, int v2, int v3) {
+        return Math.abs(v1 - v0) + Math.abs(v2 - v1) + Math.abs(v3 - v2);
+    }
+
+    // F1: 2k <-> 2k + 1
+    private static int flip(int v) {
+        return v ^ 1;
+    }
+
+    // F-1: 2k - 1 <-> 2k
+    private static int shift(int v) {
+        return ((v + 1) ^ 1) - 1;
+    }
+}
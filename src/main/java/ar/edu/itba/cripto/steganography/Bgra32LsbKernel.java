@@ -0,0 +1,197 @@
+package ar.edu.itba.cripto.steganography;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Kernels de LSB1 / LSB4 / invert para pixeles de 32 bits (B, G, R, alpha) sin tocar el alpha.
+// Los indices son de bytes de color: el byte de color c esta en (c / 3) * 4 + c % 3.
+// Un long son 2 pixeles con 6 bytes de color (bytes 0, 1, 2, 4, 5, 6 de la palabra),
+// asi que cada 3 bytes del mensaje se procesan 4 longs (LSB1) o 1 long (LSB4).
+final class Bgra32LsbKernel implements LsbKernel {
+
+    static final Bgra32LsbKernel INSTANCE = new Bgra32LsbKernel();
+
+    private static final VarHandle PIXEL_LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Bytes de color por long
+    private static final int COLORS_PER_WORD = 6;
+    // 3 bytes del mensaje por grupo
+    private static final int GROUP = 3;
+
+    private static final long LSB1_MASK = 0x0001010100010101L;
+    private static final long LSB4_MASK = 0x000F0F0F000F0F0FL;
+
+    // Junta el bit 0 de cada byte de la palabra en el byte alto: el byte 0 queda como bit 7
+    private static final long LSB1_GATHER = 0x8040201008040201L;
+
+    // SPREAD1[m]: el bit (5 - k) de m en el bit 0 del k-esimo byte de color de la palabra
+    private static final long[] SPREAD1 = new long[64];
+
+    static {
+        int[] lanes = {0, 1, 2, 4, 5, 6};
+        for (int m = 0; m < 64; m++) {
+            long spread = 0;
+            for (int k = 0; k < COLORS_PER_WORD; k++) {
+                spread |= (long) ((m >> (5 - k)) & 1) << (8 * lanes[k]);
+            }
+            SPREAD1[m] = spread;
+        }
+    }
+
+    private Bgra32LsbKernel() {}
+
+    static int pixelIndex(int color) {
+        return (color / 3) * 4 + color % 3;
+    }
+
+    @Override
+    public void embed(ByteBuffer pixels, int color, byte[] src, int off, int len, int bitsPerByte) {
+        if (bitsPerByte != 1 && bitsPerByte != 4) {
+            embedGeneric(pixels, color, src, off, len, bitsPerByte);
+            return;
+        }
+        int colorsPerByte = 8 / bitsPerByte;
+        int colorsPerGroup = GROUP * colorsPerByte;
+
+        // Hasta que el grupo empiece en un long (24 bytes de color en LSB1, 6 en LSB4)
+        int head = Math.min(len, (colorsPerGroup - color % colorsPerGroup) % colorsPerGroup / colorsPerByte);
+        embedGeneric(pixels, color, src, off, head, bitsPerByte);
+        color += head * colorsPerByte;
+        off += head;
+        len -= head;
+
+        int groups = len / GROUP;
+        int pixelIndex = pixelIndex(color);
+        if (bitsPerByte == 1) {
+            for (int g = 0; g < groups; g++, off += GROUP, pixelIndex += 32) {
+                int bits = (src[off] & 0xFF) << 16 | (src[off + 1] & 0xFF) << 8 | (src[off + 2] & 0xFF);
+                for (int k = 0; k < 4; k++) {
+                    int index = pixelIndex + 8 * k;
+                    long word = (long) PIXEL_LONG.get(pixels, index);
+                    word = (word & ~LSB1_MASK) | SPREAD1[(bits >>> (18 - 6 * k)) & 0x3F];
+                    PIXEL_LONG.set(pixels, index, word);
+                }
+            }
+        } else {
+            for (int g = 0; g < groups; g++, off += GROUP, pixelIndex += 8) {
+                long b0 = src[off] & 0xFF, b1 = src[off + 1] & 0xFF, b2 = src[off + 2] & 0xFF;
+                // Nibble alto primero, cada uno en su byte de color
+                long spread = b0 >> 4 | (b0 & 0xF) << 8 | (b1 >> 4) << 16
+                        | (b1 & 0xF) << 32 | (b2 >> 4) << 40 | (b2 & 0xF) << 48;
+                long word = (long) PIXEL_LONG.get(pixels, pixelIndex);
+                PIXEL_LONG.set(pixels, pixelIndex, (word & ~LSB4_MASK) | spread);
+            }
+        }
+        color += groups * colorsPerGroup;
+
+        embedGeneric(pixels, color, src, off, len % GROUP, bitsPerByte);
+    }
+
+    @Override
+    public void extract(ByteBuffer pixels, int color, byte[] dst, int off, int len, int bitsPerByte) {
+        if (bitsPerByte != 1 && bitsPerByte != 4) {
+            extractGeneric(pixels, color, dst, off, len, bitsPerByte);
+            return;
+        }
+        int colorsPerByte = 8 / bitsPerByte;
+        int colorsPerGroup = GROUP * colorsPerByte;
+
+        int head = Math.min(len, (colorsPerGroup - color % colorsPerGroup) % colorsPerGroup / colorsPerByte);
+        extractGeneric(pixels, color, dst, off, head, bitsPerByte);
+        color += head * colorsPerByte;
+        off += head;
+        len -= head;
+
+        int groups = len / GROUP;
+        int pixelIndex = pixelIndex(color);
+        if (bitsPerByte == 1) {
+            for (int g = 0; g < groups; g++, off += GROUP, pixelIndex += 32) {
+                int bits = 0;
+                for (int k = 0; k < 4; k++) {
+                    long word = (long) PIXEL_LONG.get(pixels, pixelIndex + 8 * k) & LSB1_MASK;
+                    // Bits 7, 6, 5: bytes 0, 1, 2; bits 3, 2, 1: bytes 4, 5, 6
+                    int gathered = (int) ((word * LSB1_GATHER) >>> 56);
+                    bits = bits << 6 | (gathered >> 2) & 0x38 | (gathered >> 1) & 0x7;
+                }
+                dst[off] = (byte) (bits >>> 16);
+                dst[off + 1] = (byte) (bits >>> 8);
+                dst[off + 2] = (byte) bits;
+            }
+        } else {
+            for (int g = 0; g < groups; g++, off += GROUP, pixelIndex += 8) {
+                long nibbles = (long) PIXEL_LONG.get(pixels, pixelIndex) & LSB4_MASK;
+                dst[off] = (byte) ((nibbles & 0xF) << 4 | (nibbles >>> 8) & 0xF);
+                dst[off + 1] = (byte) ((nibbles >>> 16 & 0xF) << 4 | (nibbles >>> 32) & 0xF);
+                dst[off + 2] = (byte) ((nibbles >>> 40 & 0xF) << 4 | (nibbles >>> 48) & 0xF);
+            }
+        }
+        color += groups * colorsPerGroup;
+
+        extractGeneric(pixels, color, dst, off, len % GROUP, bitsPerByte);
+    }
+
+    @Override
+    public void invert(ByteBuffer pixels, int from, int to, int invertedPatterns) {
+        int pixelIndex = pixelIndex(from);
+        // 0: azul, 1: verde, 2: rojo
+        int channel = from % 3;
+
+        for (int i = from; i < to; i++) {
+            if (channel == 2) {
+                // Skip red and alpha
+                pixelIndex += 2;
+                channel = 0;
+            } else {
+                byte imageByte = pixels.get(pixelIndex);
+                int inverted = (invertedPatterns >> ((imageByte & 0x6) >> 1)) & 0x1;
+                pixels.put(pixelIndex, (byte) (imageByte ^ inverted));
+                pixelIndex++;
+                channel++;
+            }
+        }
+    }
+
+    static void embedGeneric(
+            ByteBuffer pixels, int color, byte[] src, int off, int len, int bitsPerByte) {
+        // mask: pone en 0 los bits menos significativos
+        int mask = (0xFF << bitsPerByte) & 0xFF;
+        int bitsMask = (1 << bitsPerByte) - 1;
+        int pixelIndex = pixelIndex(color);
+        int channel = color % 3;
+
+        for (int i = 0; i < len; i++) {
+            byte currentByte = src[off + i];
+            for (int bitIndex = 0; bitIndex < 8; bitIndex += bitsPerByte) {
+                int bitsToEmbed = (currentByte >> (8 - (bitsPerByte + bitIndex))) & bitsMask;
+
+                byte imageByte = pixels.get(pixelIndex);
+                pixels.put(pixelIndex, (byte) ((imageByte & mask) | bitsToEmbed));
+
+                // Despues del rojo salteo el alpha
+                pixelIndex += channel == 2 ? 2 : 1;
+                channel = channel == 2 ? 0 : channel + 1;
+            }
+        }
+    }
+
+    static void extractGeneric(
+            ByteBuffer pixels, int color, byte[] dst, int off, int len, int bitsPerByte) {
+        int bitsMask = (1 << bitsPerByte) - 1;
+        int pixelIndex = pixelIndex(color);
+        int channel = color % 3;
+
+        for (int i = 0; i < len; i++) {
+            int byteValue = 0;
+            for (int bitIndex = 0; bitIndex < 8; bitIndex += bitsPerByte) {
+                byteValue = (byteValue << bitsPerByte) | (pixels.get(pixelIndex) & bitsMask);
+
+                pixelIndex += channel == 2 ? 2 : 1;
+                channel = channel == 2 ? 0 : channel + 1;
+            }
+            dst[off + i] = (byte) byteValue;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ar.edu.itba.cripto.steganography;
+
+import java.util.zip.Deflater;
+
+// -compress: nivel de Deflater (1 a 9), fast es el 1 (Deflater.BEST_SPEED).
+// El mensaje comprimido es [COMPRESSED | filelength][zlib(file + extension)], asi el length
+// sigue diciendo el tamaño del archivo y un Extract viejo lo rechaza (length negativo)
+public record Compression(int level) {
+
+    static final int COMPRESSED = 0x80000000;
+
+    public static final Compression FAST = new Compression(Deflater.BEST_SPEED);
+
+    public Compression {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9");
+        }
+    }
+
+    public static Compression parse(String value) {
+        if (value.equalsIgnoreCase("fast")) {
+            return FAST;
+        }
+        return new Compression(Integer.parseInt(value));
+    }
+
+    Deflater newDeflater() {
+        return new Deflater(level);
+    }
+
+    static boolean isCompressed(int length) {
+        return (length & COMPRESSED) != 0;
+    }
+
+    // Los 2 bytes del header de zlib (RFC 1950): deflate, ventana valida, sin diccionario
+    // y el checksum del header. Sirve para rechazar imagenes sin mensaje con el flag prendido
+    static boolean isZlibHeader(int cmf, int flg) {
+        return (cmf & 0x0F) == 8
+                && (cmf >> 4) <= 7
+                && (flg & 0x20) == 0
+                && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "level " + level;
+    }
+}
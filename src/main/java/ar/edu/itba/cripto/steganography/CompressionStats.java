@@ -0,0 +1,17 @@
+package ar.edu.itba.cripto.steganography;
+
+// Lo que hizo -compress: bytes que entraron al Deflater (archivo + extension), bytes
+// comprimidos y el tiempo que se paso comprimiendo (sin contar el embed)
+public record CompressionStats(Compression compression, long inputBytes, long compressedBytes, long nanos) {
+
+    public double ratio() {
+        return compressedBytes == 0 ? 0 : (double) inputBytes / compressedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Compressed %d to %d bytes (%.2fx, %s) in %.1f ms",
+                inputBytes, compressedBytes, ratio(), compression, nanos / 1e6);
+    }
+}
@@ -0,0 +1,80 @@
+package ar.edu.itba.cripto.steganography;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+// Como DeflaterOutputStream, pero midiendo solo el tiempo del Deflater y sin cerrar out
+final class DeflatingOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final Compression compression;
+    private final Deflater deflater;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] single = new byte[1];
+    private long nanos;
+    private boolean closed;
+    private CompressionStats stats;
+
+    DeflatingOutputStream(OutputStream out, Compression compression) {
+        this.out = out;
+        this.compression = compression;
+        this.deflater = compression.newDeflater();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return;
+        }
+        // El Deflater se queda con b, asi que se consume todo antes de volver
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+    }
+
+    // Termina el stream de zlib, out queda abierto
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflate();
+            }
+            stats = new CompressionStats(
+                    compression, deflater.getBytesRead(), deflater.getBytesWritten(), nanos);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // null hasta que se cierra
+    CompressionStats stats() {
+        return stats;
+    }
+
+    private void deflate() throws IOException {
+        long start = System.nanoTime();
+        int length = deflater.deflate(buffer);
+        nanos += System.nanoTime() - start;
+        if (length > 0) {
+            out.write(buffer, 0, length);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.cryptography.CryptographyAlgorithm;
+import ar.edu.itba.cripto.cryptography.CryptographyMode;
+
+// Un candidato de -steg AUTO. algorithm y mode son null si el mensaje no esta cifrado.
+// hiddenLength es el length del header (el del texto cifrado si esta cifrado).
+public record Detection(
+        SteganographyMethod method,
+        CryptographyAlgorithm algorithm,
+        CryptographyMode mode,
+        int hiddenLength,
+        int score) {
+
+    public boolean isEncrypted() {
+        return algorithm != null;
+    }
+
+    @Override
+    public String toString() {
+        String name = method.name();
+        if (isEncrypted()) {
+            name += " (" + algorithm.name().toLowerCase() + "/" + mode.name().toLowerCase() + ")";
+        }
+        return name;
+    }
+}
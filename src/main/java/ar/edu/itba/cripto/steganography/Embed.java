@@ -1,15 +1,29 @@
 package ar.edu.itba.cripto.steganography;
 
 import ar.edu.itba.cripto.cryptography.Cryptography;
+import ar.edu.itba.cripto.cryptography.CryptographyAlgorithm;
+import ar.edu.itba.cripto.cryptography.CryptographyMode;
 import ar.edu.itba.cripto.model.BMP;
+import ar.edu.itba.cripto.model.PixelStorage;
+import ar.edu.itba.cripto.stats.JobStats;
+import ar.edu.itba.cripto.stats.JobStats.Phase;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class Embed {
 
-    private byte[] input;
+    // El payload se lee de a bloques de este tamaño, el heap usado no depende del payload
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private Path inputPath;
+    private long inputSize;
     private byte[] fileExtension;
 
     private BMP cover;
@@ -17,9 +31,20 @@ public class Embed {
 
     private SteganographyMethod steganographyMethod;
     private Cryptography cryptography;
+    private SteganographyOptions options = SteganographyOptions.DEFAULT;
+    private boolean deltaWrite;
+    private Compression compression;
+    private CompressionStats compressionStats;
+    private JobStats stats;
 
     public void setInput(String inputFilePath) throws IOException {
-        this.input = Files.readAllBytes(new File(inputFilePath).toPath());
+        this.inputPath = new File(inputFilePath).toPath();
+        this.inputSize = Files.size(inputPath);
+
+        // El length se guarda en 4 bytes
+        if (inputSize > Integer.MAX_VALUE - 4) {
+            throw new IOException("Input file is too large");
+        }
 
         // Get the file extension: .extension\0
         String[] parts = inputFilePath.split("\\.");
@@ -28,8 +53,27 @@ public class Embed {
         this.fileExtension = ("." + extension + "\0").getBytes();
     }
 
+    // message: filelength + file + extension
+    public long getMessageLength() {
+        return 4 + inputSize + fileExtension.length;
+    }
+
+    // Rechaza el job si no entra, leyendo solo el header del cover.
+    // algorithm y mode en null si no se cifra.
+    // Comprimido no se sabe cuanto ocupa hasta comprimirlo, solo se lee el header
+    public void preflight(String coverFilePath, CryptographyAlgorithm algorithm, CryptographyMode mode)
+            throws IOException {
+        long hiddenLength =
+                compression == null ? Preflight.hiddenLength(getMessageLength(), algorithm, mode) : 0;
+        Preflight.check(coverFilePath, steganographyMethod, hiddenLength);
+    }
+
     public void setCover(String coverFilePath) throws IOException {
-        this.cover = new BMP(coverFilePath);
+        setCover(coverFilePath, PixelStorage.AUTO);
+    }
+
+    public void setCover(String coverFilePath, PixelStorage storage) throws IOException {
+        this.cover = new BMP(coverFilePath, storage);
     }
 
     public void setOutput(String outputFilePath) {
@@ -44,55 +88,164 @@ public class Embed {
         this.cryptography = cryptography;
     }
 
-    public void execute() throws IOException {
+    public void setOptions(SteganographyOptions options) {
+        this.options = options;
+    }
 
-        byte[] message = buildMessage();
+    // La salida se escribe copiando el cover y pisando solo los bytes que se modificaron
+    public void setDeltaWrite(boolean deltaWrite) {
+        this.deltaWrite = deltaWrite;
+    }
 
-        BMP stegoImage = steganographyMethod.embed(message, cover);
+    // null para no comprimir
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    // Tamaños y tiempo de la compresion del ultimo execute(), null si no se comprimio
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
 
-        stegoImage.writeBMP(outputPath);
+    // -stats: execute() reparte su tiempo en las fases y completa los bytes. null para no medir
+    public void setStats(JobStats stats) {
+        this.stats = stats;
     }
 
-    private byte[] buildMessage() {
-        // 4 bytes for the length of the file
-        int messageLength = input.length;
-        int extensionLength = fileExtension.length;
+    public void execute() throws IOException {
+        EmbedEvent event = new EmbedEvent();
+        event.begin();
 
-        // message: filelength + file + extension
-        byte[] message = new byte[4 + messageLength + extensionLength];
+        long messageLength = getMessageLength();
+        SteganographyOutputStream out = steganographyMethod.newOutputStream(cover, options);
+        int capacity = out.remaining();
 
-        // Copy the file length
-        byte[] messageLengthBytes = intToByteArray(messageLength);
-        System.arraycopy(messageLengthBytes, 0, message, 0, 4);
+        try (out;
+                ReadableByteChannel input = Files.newByteChannel(inputPath)) {
+            OutputStream hidden = time(Phase.EMBED, out);
 
-        // Copy the file
-        System.arraycopy(input, 0, message, 4, messageLength);
+            // Antes de tocar la imagen, el texto cifrado nunca es mas corto que el mensaje
+            if (compression == null && messageLength > out.remaining()) {
+                throw new RuntimeException("BMP file is not long enough");
+            }
 
-        // Copy the extension
-        System.arraycopy(fileExtension, 0, message, 4 + messageLength, extensionLength);
+            if (cryptography == null) {
+                writeMessage(hidden, input);
+            } else if (compression != null) {
+                // El length cifrado va antes, asi que primero se comprime todo (a lo sumo lo que entra)
+                ByteArrayOutputStream message = new BoundedOutputStream(out.remaining() - 4);
+                writeMessage(message, input);
 
-        if (cryptography == null) {
-            return message;
+                int encryptedLength = cryptography.getEncryptedLength(message.size());
+                if (encryptedLength < 0 || 4L + encryptedLength > out.remaining()) {
+                    throw new RuntimeException("BMP file is not long enough");
+                }
+
+                hidden.write(intToByteArray(encryptedLength));
+                OutputStream encrypted = time(Phase.ENCRYPT, cryptography.encrypt(hidden));
+                message.writeTo(encrypted);
+                encrypted.close();
+            } else {
+                // encryptedMessage: length + encrypted message
+                int encryptedLength = cryptography.getEncryptedLength((int) messageLength);
+                if (encryptedLength < 0 || 4L + encryptedLength > out.remaining()) {
+                    throw new RuntimeException("BMP file is not long enough");
+                }
+
+                // Copy the encrypted file length
+                hidden.write(intToByteArray(encryptedLength));
+
+                // Copy the encrypted message, se cifra a medida que se lee el archivo
+                OutputStream encrypted = time(Phase.ENCRYPT, cryptography.encrypt(hidden));
+                writeMessage(encrypted, input);
+                encrypted.close();
+            }
+
+            // LSBI escribe los patrones al cerrar
+            hidden.close();
         }
 
-        // Encrypt the message
+        if (event.shouldCommit()) {
+            event.method = steganographyMethod.name();
+            event.bitsPerPixel = cover.getPixelFormat().bitsPerPixel();
+            event.inputBytes = inputSize;
+            event.hiddenBytes = out.written();
+            event.algorithm = cryptography == null ? null : cryptography.getAlgorithm().name();
+            event.mode = cryptography == null ? null : cryptography.getMode().name();
+            event.compressed = compression != null;
+            event.commit();
+        }
 
-        byte[] encryptedMessage = cryptography.encrypt(message);
+        if (stats != null) {
+            stats.put("method", steganographyMethod.name());
+            stats.put("bitsPerPixel", cover.getPixelFormat().bitsPerPixel());
+            stats.put("pixelBytes", cover.pixels().capacity());
+            stats.put("algorithm", cryptography == null ? null : cryptography.getAlgorithm().name());
+            stats.put("mode", cryptography == null ? null : cryptography.getMode().name());
+            stats.put("compressionLevel", compression == null ? null : compression.level());
+            stats.put("inputBytes", inputSize);
+            stats.put("hiddenBytes", out.written());
+            stats.put("capacityBytes", capacity);
+        }
+
+        Phase previous = enter(Phase.WRITE);
+        if (deltaWrite) {
+            cover.writeBMP(outputPath, out.modifiedBytes());
+        } else {
+            cover.writeBMP(outputPath);
+        }
+        enter(previous);
+    }
 
-        int encryptedMessageLength = encryptedMessage.length;
-        byte[] encryptedLengthBytes = intToByteArray(encryptedMessageLength);
+    // message: filelength + file + extension, escrito a medida que se lee el archivo.
+    // Comprimido: (COMPRESSED | filelength) + zlib(file + extension), ver Compression
+    private void writeMessage(OutputStream message, ReadableByteChannel input) throws IOException {
+        compressionStats = null;
+        if (compression == null) {
+            // Copy the file length
+            message.write(intToByteArray((int) inputSize));
+            writeFile(message, input);
+            return;
+        }
 
-        // encryptedMessage: length + encrypted message
-        byte[] encryptedMessageWithLength = new byte[4 + encryptedMessageLength];
+        message.write(intToByteArray(Compression.COMPRESSED | (int) inputSize));
+        DeflatingOutputStream compressed = new DeflatingOutputStream(message, compression);
+        OutputStream timed = time(Phase.COMPRESS, compressed);
+        writeFile(timed, input);
+        timed.close();
+        compressionStats = compressed.stats();
+    }
 
-        // Copy the encrypted file length
-        System.arraycopy(encryptedLengthBytes, 0, encryptedMessageWithLength, 0, 4);
+    // file + extension
+    private void writeFile(OutputStream message, ReadableByteChannel input) throws IOException {
+
+        // Copy the file
+        int chunkSize = (int) Math.min(CHUNK_SIZE, Math.max(inputSize, 1));
+        ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+        long remaining = inputSize;
+        while (remaining > 0) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), remaining));
+            Phase previous = enter(Phase.READ_INPUT);
+            int read = input.read(chunk);
+            enter(previous);
+            if (read < 0) {
+                throw new IOException("Input file changed while reading");
+            }
+            message.write(chunk.array(), 0, chunk.position());
+            remaining -= chunk.position();
+        }
+
+        // Copy the extension
+        message.write(fileExtension);
+    }
 
-        // Copy the encrypted file
-        System.arraycopy(
-                encryptedMessage, 0, encryptedMessageWithLength, 4, encryptedMessageLength);
+    private OutputStream time(Phase phase, OutputStream stream) {
+        return stats == null ? stream : stats.time(phase, stream);
+    }
 
-        return encryptedMessageWithLength;
+    // Sin -stats no hace nada
+    private Phase enter(Phase phase) {
+        return stats == null ? null : stats.enter(phase);
     }
 
     private byte[] intToByteArray(int value) {
@@ -100,4 +253,27 @@ public class Embed {
             (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value
         };
     }
+
+    // El mensaje comprimido antes de cifrarlo, sin pasarse de lo que entra en la imagen
+    private static final class BoundedOutputStream extends ByteArrayOutputStream {
+
+        private final int limit;
+
+        BoundedOutputStream(int limit) {
+            this.limit = Math.max(limit, 0);
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (len > limit - size()) {
+                throw new RuntimeException("BMP file is not long enough");
+            }
+            super.write(b, off, len);
+        }
+    }
 }
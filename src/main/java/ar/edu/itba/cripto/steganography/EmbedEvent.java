@@ -0,0 +1,44 @@
+package ar.edu.itba.cripto.steganography;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento de JFR de Embed.execute hasta antes de escribir la imagen
+// (lectura del archivo, compresion, cifrado y el metodo)
+@Name("stegobmp.Embed")
+@Label("Embed")
+@Category({"stegobmp", "Steganography"})
+@Description("A message hidden in the pixel data of a cover")
+@StackTrace(false)
+final class EmbedEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Bits per Pixel")
+    int bitsPerPixel;
+
+    @Label("Input")
+    @Description("Size of the input file")
+    @DataAmount
+    long inputBytes;
+
+    @Label("Hidden")
+    @Description("Bytes hidden in the image, with lengths, extension and encryption")
+    @DataAmount
+    long hiddenBytes;
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Compressed")
+    boolean compressed;
+}
@@ -1,22 +1,96 @@
 package ar.edu.itba.cripto.steganography;
 
 import ar.edu.itba.cripto.cryptography.Cryptography;
+import ar.edu.itba.cripto.cryptography.CryptographyAlgorithm;
+import ar.edu.itba.cripto.cryptography.CryptographyMode;
 import ar.edu.itba.cripto.model.BMP;
+import ar.edu.itba.cripto.model.BMPHeader;
+import ar.edu.itba.cripto.model.PixelStorage;
+import ar.edu.itba.cripto.stats.JobStats;
+import ar.edu.itba.cripto.stats.JobStats.Phase;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
 
 public class Extract {
 
+    // Los datos ocultos se escriben de a bloques de este tamaño
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    // .extension\0, lo unico que hay que guardar en memoria
+    static final int MAX_EXTENSION_LENGTH = 256;
+
+    // Bytes de color, alcanza para el length y el header de zlib con cualquier metodo
+    // (LSBI: 4 bytes de patrones y 61 bits en los demas)
+    private static final int HEADER_PIXEL_BYTES = 96;
+
+    // Buffer del Inflater
+    private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+
+    // ".\0"
+    private static final int MIN_EXTENSION_LENGTH = 2;
+
     private BMP cover;
     private String outputPath;
 
     private SteganographyMethod steganographyMethod;
     private Cryptography cryptography;
+    private SteganographyOptions options = SteganographyOptions.DEFAULT;
+    private JobStats stats;
+    private long outputLength;
+    private boolean compressed;
+
+    // Rechaza imagenes sin mensaje leyendo el header del BMP y el principio de la pixel data,
+    // antes de cargar el cover y de derivar la clave. algorithm y mode en null si no se cifro.
+    public void preflight(String coverFilePath, CryptographyAlgorithm algorithm, CryptographyMode mode)
+            throws IOException {
+        BMPHeader header = BMPHeader.read(coverFilePath);
+        ByteBuffer pixels =
+                header.readPixels(coverFilePath, header.format().dataLength(HEADER_PIXEL_BYTES));
+
+        SteganographyInputStream in = steganographyMethod.newInputStream(pixels, header.format(), options);
+        if (in.available() < 4) {
+            throw new RuntimeException("No hidden data found");
+        }
+        int length = in.readInt();
+        if (algorithm == null && Compression.isCompressed(length)) {
+            checkCompressed(length, in);
+            return;
+        }
+        checkLength(length, steganographyMethod.capacity(header) - 4, algorithm, mode);
+    }
+
+    // Comprimido el length es el del archivo, que puede no entrar en la imagen:
+    // lo que se chequea es que lo que sigue sea un header de zlib
+    private static void checkCompressed(int length, InputStream in) throws IOException {
+        int cmf = in.read();
+        int flg = in.read();
+        if (flg < 0 || !Compression.isZlibHeader(cmf, flg)) {
+            throw new RuntimeException("No hidden data found");
+        }
+    }
 
     public void setCover(String coverFilePath) throws IOException {
-        this.cover = new BMP(coverFilePath);
+        setCover(coverFilePath, PixelStorage.AUTO);
+    }
+
+    public void setCover(String coverFilePath, PixelStorage storage) throws IOException {
+        this.cover = new BMP(coverFilePath, storage);
     }
 
     public void setOutput(String outputFilePath) {
@@ -31,50 +105,191 @@ public class Extract {
         this.cryptography = cryptography;
     }
 
+    public void setOptions(SteganographyOptions options) {
+        this.options = options;
+    }
+
+    // -stats: execute() reparte su tiempo en las fases y completa los bytes. null para no medir
+    public void setStats(JobStats stats) {
+        this.stats = stats;
+    }
+
+    // -steg AUTO: elige el metodo (y el algoritmo y modo si hay password) leyendo solo los
+    // headers, despues execute() extrae con el elegido. password en null si no se cifro.
+    public Detection detect(
+            String password, List<CryptographyAlgorithm> algorithms, List<CryptographyMode> modes) {
+        Optional<Detection> detection =
+                password == null
+                        ? SteganographyDetector.detect(cover, options)
+                        : SteganographyDetector.detect(cover, options, password, algorithms, modes);
+
+        Detection best = detection.orElseThrow(() -> new RuntimeException("No hidden data found"));
+        this.steganographyMethod = best.method();
+        this.cryptography =
+                best.isEncrypted() ? new Cryptography(best.algorithm(), best.mode(), password) : null;
+        return best;
+    }
+
     public String execute() throws IOException {
-        boolean containsExtension = cryptography == null;
-        byte[] hiddenData = steganographyMethod.extract(cover, containsExtension);
+        ExtractEvent event = new ExtractEvent();
+        event.begin();
 
-        if (cryptography != null) {
+        SteganographyInputStream hidden = steganographyMethod.newInputStream(cover, options);
+        int capacity = hidden.available();
 
-            // Skip first 4 bytes (length of encrypted data)
-            byte[] encryptedLengthBytes = new byte[4];
-            System.arraycopy(hiddenData, 0, encryptedLengthBytes, 0, 4);
-            int encryptedLength = byteArrayToInt(hiddenData);
+        String outputFile;
+        if (cryptography == null) {
+            outputFile = writeMessage(time(Phase.EXTRACT, hidden), hidden.available());
+        } else {
+            // encryptedMessage: length + encrypted message, se descifra a medida que se escribe
+            int encryptedLength = hidden.readInt();
+            checkLength(encryptedLength, hidden.available(), cryptography.getAlgorithm(), cryptography.getMode());
 
-            byte[] hiddenDataWithoutLength = new byte[hiddenData.length - 4];
-            System.arraycopy(
-                    hiddenData, 4, hiddenDataWithoutLength, 0, hiddenDataWithoutLength.length);
+            try (InputStream message =
+                    time(Phase.DECRYPT, cryptography.decrypt(time(Phase.EXTRACT, hidden), encryptedLength))) {
+                outputFile = writeMessage(message, encryptedLength);
+            }
+        }
 
-            hiddenData = cryptography.decrypt(hiddenDataWithoutLength);
+        if (event.shouldCommit()) {
+            event.method = steganographyMethod.name();
+            event.bitsPerPixel = cover.getPixelFormat().bitsPerPixel();
+            event.hiddenBytes = capacity - hidden.available();
+            event.algorithm = cryptography == null ? null : cryptography.getAlgorithm().name();
+            event.mode = cryptography == null ? null : cryptography.getMode().name();
+            event.commit();
         }
 
-        // Skip first 4 bytes (length of data)
-        byte[] messageLengthBytes = new byte[4];
-        System.arraycopy(hiddenData, 0, messageLengthBytes, 0, 4);
-        int messageLength = byteArrayToInt(messageLengthBytes);
+        if (stats != null) {
+            stats.put("method", steganographyMethod.name());
+            stats.put("bitsPerPixel", cover.getPixelFormat().bitsPerPixel());
+            stats.put("pixelBytes", cover.pixels().capacity());
+            stats.put("algorithm", cryptography == null ? null : cryptography.getAlgorithm().name());
+            stats.put("mode", cryptography == null ? null : cryptography.getMode().name());
+            stats.put("compressed", compressed);
+            stats.put("outputBytes", outputLength);
+            stats.put("hiddenBytes", capacity - hidden.available());
+            stats.put("capacityBytes", capacity);
+        }
+        return outputFile;
+    }
 
-        byte[] message = new byte[messageLength];
-        System.arraycopy(hiddenData, 4, message, 0, messageLength);
+    // El length del header tiene que entrar en lo que queda de la imagen (available) y, si esta
+    // cifrado, ser un texto cifrado posible para el modo. Sin cifrar es el largo del archivo.
+    private static void checkLength(
+            int length, long available, CryptographyAlgorithm algorithm, CryptographyMode mode) {
+        // Un archivo vacio es un mensaje valido
+        long minimum = 0;
+        long maximum = available - MIN_EXTENSION_LENGTH;
+        if (algorithm != null) {
+            minimum = mode.getEncryptedLength(4 + minimum + MIN_EXTENSION_LENGTH, algorithm);
+            maximum = available;
+        }
+        if (length < minimum || length > maximum) {
+            throw new RuntimeException("No hidden data found");
+        }
+        if (algorithm != null && mode.usesPadding() && length % algorithm.getBlockSize() != 0) {
+            throw new RuntimeException("No hidden data found");
+        }
+    }
+
+    // message: filelength + file + extension. El archivo se escribe a medida que se lee,
+    // y como la extension viene al final se renombra cuando se la conoce
+    // El mensaje ocupa a lo sumo limit bytes
+    // Comprimido, file + extension se descomprimen a medida que se leen, ver Compression
+    private String writeMessage(InputStream message, long limit) throws IOException {
+        int messageLength = readInt(message);
+        compressed = Compression.isCompressed(messageLength);
+        if (compressed) {
+            messageLength &= ~Compression.COMPRESSED;
+            Inflater inflater = new Inflater();
+            try {
+                return writeFile(
+                        time(Phase.DECOMPRESS, new InflaterInputStream(message, inflater, INFLATE_BUFFER_SIZE)),
+                        messageLength);
+            } catch (ZipException | EOFException e) {
+                throw new RuntimeException("Invalid compressed data");
+            } finally {
+                inflater.end();
+            }
+        }
+        if (messageLength < 0 || messageLength > limit - 4) {
+            throw new RuntimeException("No hidden data found");
+        }
+        return writeFile(message, messageLength);
+    }
 
-        // Get file extension
-        byte[] extension = new byte[hiddenData.length - messageLength - 4];
-        System.arraycopy(hiddenData, messageLength + 4, extension, 0, extension.length);
+    private String writeFile(InputStream message, int messageLength) throws IOException {
+        outputLength = messageLength;
 
-        // Ignore the last 0 byte
-        String extensionString = new String(extension, 0, extension.length - 1);
+        Path output = new File(outputPath).toPath().toAbsolutePath();
+        // createTempFile lo crearia 0600 y el move conserva los permisos: se crea con el umask
+        // como cualquier archivo, con un nombre unico para no pisar otra extraccion al mismo output
+        Path partial = output.resolveSibling(String.format(
+                "%s.%016x.part", output.getFileName(), ThreadLocalRandom.current().nextLong()));
+        FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
 
-        File outputFile = new File(outputPath + extensionString);
+        try {
+            try (channel) {
+                byte[] chunk = new byte[Math.min(CHUNK_SIZE, messageLength)];
+                int remaining = messageLength;
+                while (remaining > 0) {
+                    int read = message.read(chunk, 0, Math.min(chunk.length, remaining));
+                    if (read < 0) {
+                        throw new RuntimeException("No hidden data found");
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                    Phase previous = enter(Phase.WRITE);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    enter(previous);
+                    remaining -= read;
+                }
+            }
 
-        Files.write(outputFile.toPath(), message);
+            // Ignore the last 0 byte
+            String extensionString = readExtension(message);
 
-        return outputFile.getPath();
+            File outputFile = new File(outputPath + extensionString);
+            Files.move(partial, outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            return outputFile.getPath();
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    private InputStream time(Phase phase, InputStream stream) {
+        return stats == null ? stream : stats.time(phase, stream);
+    }
+
+    // Sin -stats no hace nada
+    private Phase enter(Phase phase) {
+        return stats == null ? null : stats.enter(phase);
     }
 
-    private int byteArrayToInt(byte[] bytes) {
-        return (bytes[0] & 0xFF) << 24
-                | (bytes[1] & 0xFF) << 16
-                | (bytes[2] & 0xFF) << 8
-                | (bytes[3] & 0xFF);
+    private String readExtension(InputStream message) throws IOException {
+        ByteArrayOutputStream extension = new ByteArrayOutputStream();
+        int b;
+        while ((b = message.read()) > 0) {
+            if (extension.size() == MAX_EXTENSION_LENGTH) {
+                throw new RuntimeException("Invalid file extension");
+            }
+            extension.write(b);
+        }
+        return extension.toString();
+    }
+
+    private int readInt(InputStream message) throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = message.read();
+            if (b < 0) {
+                throw new RuntimeException("No hidden data found");
+            }
+            value = (value << 8) | b;
+        }
+        return value;
     }
 }
@@ -0,0 +1,35 @@
+package ar.edu.itba.cripto.steganography;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento de JFR de Extract.execute (el metodo, el descifrado y la escritura del archivo)
+@Name("stegobmp.Extract")
+@Label("Extract")
+@Category({"stegobmp", "Steganography"})
+@Description("A message read from the pixel data and written to a file")
+@StackTrace(false)
+final class ExtractEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Bits per Pixel")
+    int bitsPerPixel;
+
+    @Label("Hidden")
+    @Description("Bytes read from the image")
+    @DataAmount
+    long hiddenBytes;
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Mode")
+    String mode;
+}
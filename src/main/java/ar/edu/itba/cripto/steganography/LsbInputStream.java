@@ -0,0 +1,39 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.model.PixelFormat;
+
+import java.nio.ByteBuffer;
+
+// LSB1 / LSB4: cada byte oculto ocupa 8 / bitsPerByte bytes de color consecutivos de la imagen
+final class LsbInputStream extends SteganographyInputStream {
+
+    private final PixelFormat format;
+    private final LsbKernel kernel;
+    private final int bitsPerByte;
+    private final int bytesPerHiddenByte;
+    private final int mask;
+
+    LsbInputStream(ByteBuffer pixels, PixelFormat format, int bitsPerByte, LsbKernel kernel) {
+        super(pixels, format.colorBytes(pixels.capacity()) / (8 / bitsPerByte));
+        this.format = format;
+        this.kernel = kernel;
+        this.bitsPerByte = bitsPerByte;
+        this.bytesPerHiddenByte = 8 / bitsPerByte;
+        this.mask = (1 << bitsPerByte) - 1;
+    }
+
+    @Override
+    protected byte decode(int index) {
+        long color = (long) index * bytesPerHiddenByte;
+        int byteValue = 0;
+        for (int i = 0; i < bytesPerHiddenByte; i++) {
+            byteValue = (byteValue << bitsPerByte) | (pixels.get(format.pixelIndex(color + i)) & mask);
+        }
+        return (byte) byteValue;
+    }
+
+    @Override
+    protected void decode(int index, byte[] dst, int off, int len) {
+        kernel.extract(pixels, index * bytesPerHiddenByte, dst, off, len, bitsPerByte);
+    }
+}
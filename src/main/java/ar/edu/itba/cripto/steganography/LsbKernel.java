@@ -0,0 +1,17 @@
+package ar.edu.itba.cripto.steganography;
+
+import java.nio.ByteBuffer;
+
+// Manipulacion de los bits menos significativos de la pixel data
+interface LsbKernel {
+
+    // Esconde len bytes de src desde pixelIndex, 8 / bitsPerByte bytes de la imagen por byte
+    void embed(ByteBuffer pixels, int pixelIndex, byte[] src, int off, int len, int bitsPerByte);
+
+    // Inversa de embed
+    void extract(ByteBuffer pixels, int pixelIndex, byte[] dst, int off, int len, int bitsPerByte);
+
+    // LSBI: invierte el LSB de los bytes no rojos (i % 3 != 2) en [from, to)
+    // cuyo patron p = (byte & 0x6) >> 1 tenga el bit p en 1 en invertedPatterns
+    void invert(ByteBuffer pixels, int from, int to, int invertedPatterns);
+}
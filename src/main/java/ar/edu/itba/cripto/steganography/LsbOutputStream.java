@@ -0,0 +1,33 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.model.PixelFormat;
+
+import java.nio.ByteBuffer;
+
+// LSB1 / LSB4: cada byte oculto ocupa 8 / bitsPerByte bytes de color consecutivos de la imagen
+final class LsbOutputStream extends SteganographyOutputStream {
+
+    private final PixelFormat format;
+    private final LsbKernel kernel;
+    private final int bitsPerByte;
+    private final int bytesPerHiddenByte;
+
+    LsbOutputStream(ByteBuffer pixels, PixelFormat format, int bitsPerByte, LsbKernel kernel) {
+        super(pixels, format.colorBytes(pixels.capacity()) / (8 / bitsPerByte));
+        this.format = format;
+        this.kernel = kernel;
+        this.bitsPerByte = bitsPerByte;
+        this.bytesPerHiddenByte = 8 / bitsPerByte;
+    }
+
+    @Override
+    protected void encode(int index, byte[] src, int off, int len) {
+        kernel.embed(pixels, index * bytesPerHiddenByte, src, off, len, bitsPerByte);
+    }
+
+    @Override
+    public int modifiedBytes() {
+        long colors = (long) written() * bytesPerHiddenByte;
+        return colors == 0 ? 0 : format.pixelIndex(colors - 1) + 1;
+    }
+}
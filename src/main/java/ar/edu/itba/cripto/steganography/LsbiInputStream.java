@@ -0,0 +1,84 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.model.PixelFormat;
+
+import java.nio.ByteBuffer;
+
+// LSBI: los primeros 4 bytes de color guardan que patrones estan invertidos,
+// despues un bit por byte de color salteando el rojo
+final class LsbiInputStream extends SteganographyInputStream {
+
+    // Bytes de la imagen usados para los patrones
+    static final int PATTERN_BYTES = 4;
+
+    // bit p en 1 => el patron (p << 1) esta invertido
+    private final int invertedPatterns;
+    private final PixelFormat format;
+    // Del verde al azul siguiente: 2 en 24 bits, 3 en 32 (salteando el alpha)
+    private final int redSkip;
+    private final byte[] single = new byte[1];
+
+    LsbiInputStream(ByteBuffer pixels, PixelFormat format) {
+        super(pixels, usableBytes(format.colorBytes(pixels.capacity())) / 8);
+        this.format = format;
+        this.redSkip = format.bytesPerPixel() - 1;
+
+        int colorBytes = format.colorBytes(pixels.capacity());
+        int inverted = 0;
+        for (int p = 0; p < PATTERN_BYTES && p < colorBytes; p++) {
+            inverted |= (pixels.get(format.pixelIndex(p)) & 0x1) << p;
+        }
+        this.invertedPatterns = inverted;
+    }
+
+    // Bytes de color no rojos (c % 3 != 2) despues de los de patrones
+    static int usableBytes(int colorBytes) {
+        if (colorBytes <= PATTERN_BYTES) {
+            return 0;
+        }
+        // 0, 1 y 3 no son rojos
+        return (colorBytes / 3) * 2 + Math.min(colorBytes % 3, 2) - 3;
+    }
+
+    // Byte de color del bit oculto k
+    static long colorIndex(long bit) {
+        // los bytes no rojos son 0, 1, 3, 4, 6, 7...; el primero despues de los patrones es el 4
+        long j = bit + 3;
+        return (j / 2) * 3 + (j % 2);
+    }
+
+    @Override
+    protected byte decode(int index) {
+        decode(index, single, 0, 1);
+        return single[0];
+    }
+
+    @Override
+    protected void decode(int index, byte[] dst, int off, int len) {
+        long color = colorIndex(index * 8L);
+        int pixelIndex = format.pixelIndex(color);
+        // 0: azul, 1: verde
+        int channel = (int) (color % 3);
+
+        for (int i = 0; i < len; i++) {
+            int byteValue = 0;
+            for (int bit = 0; bit < 8; bit++) {
+                byte pixelDatum = pixels.get(pixelIndex);
+
+                // Si el patron esta invertido, invierto el bit
+                int inverted = invertedPatterns >> ((pixelDatum & 0x6) >> 1);
+                byteValue = (byteValue << 1) | ((pixelDatum ^ inverted) & 0x1);
+
+                // Salteo el rojo
+                if (channel == 0) {
+                    pixelIndex++;
+                    channel = 1;
+                } else {
+                    pixelIndex += redSkip;
+                    channel = 0;
+                }
+            }
+            dst[off + i] = (byte) byteValue;
+        }
+    }
+}
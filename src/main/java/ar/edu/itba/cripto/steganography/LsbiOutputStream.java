@@ -0,0 +1,127 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.model.PixelFormat;
+
+import java.nio.ByteBuffer;
+
+// LSBI: un bit por byte de color de la imagen salteando el rojo. Cuenta apariciones e inversiones
+// de cada patron mientras escribe y al cerrar invierte los patrones que convenga
+final class LsbiOutputStream extends SteganographyOutputStream {
+
+    // Cada 4096 bytes del mensaje (32768 bits) se vuelcan los contadores de 16 bits
+    private static final int COUNTER_FLUSH_BYTES = 4096;
+
+    private final PixelFormat format;
+    private final LsbKernel kernel;
+    // Del verde al azul siguiente: 2 en 24 bits, 3 en 32 (salteando el alpha)
+    private final int redSkip;
+
+    /*
+    Patrones (bits 1 y 2 del byte), indexados por (byte & 0x6) >> 1:
+    0000 0000
+    0000 0010
+    0000 0100
+    0000 0110
+     */
+    private final long[] patternAppearances = new long[4];
+    private final long[] patternInversions = new long[4];
+
+    private long bits;
+    private int pixelIndex;
+    // 0: azul, 1: verde
+    private int channel;
+
+    LsbiOutputStream(ByteBuffer pixels, PixelFormat format, LsbKernel kernel) {
+        super(pixels, LsbiInputStream.usableBytes(format.colorBytes(pixels.capacity())) / 8);
+        this.format = format;
+        this.kernel = kernel;
+        this.redSkip = format.bytesPerPixel() - 1;
+
+        long color = LsbiInputStream.colorIndex(0);
+        this.pixelIndex = format.pixelIndex(color);
+        this.channel = (int) (color % 3);
+    }
+
+    @Override
+    protected void encode(int index, byte[] src, int off, int len) {
+        for (int from = off; from < off + len; from += COUNTER_FLUSH_BYTES) {
+            encodeBlock(src, from, Math.min(off + len, from + COUNTER_FLUSH_BYTES));
+        }
+    }
+
+    private void encodeBlock(byte[] src, int from, int to) {
+        // Contadores empaquetados: 16 bits por patron
+        long packedAppearances = 0;
+        long packedInversions = 0;
+
+        int pixelIndex = this.pixelIndex;
+        int channel = this.channel;
+
+        for (int messageIndex = from; messageIndex < to; messageIndex++) {
+            byte currentByte = src[messageIndex];
+
+            for (int bitIndex = 0; bitIndex < 8; bitIndex++) {
+                int bitToEmbed = (currentByte >> (7 - bitIndex)) & 1;
+
+                byte imageByte = pixels.get(pixelIndex);
+                int patternShift = (imageByte & 0x6) << 3;
+
+                // Modifico el bit menos significativo de la imagen con el del mensaje
+                byte modifiedImageByte = (byte) ((imageByte & 0xFE) | bitToEmbed);
+                pixels.put(pixelIndex, modifiedImageByte);
+
+                // Cuento apariciones e inversiones de los patrones
+                packedAppearances += 1L << patternShift;
+                packedInversions += (long) ((imageByte ^ modifiedImageByte) & 1) << patternShift;
+
+                // Skip red byte
+                if (channel == 0) {
+                    pixelIndex++;
+                    channel = 1;
+                } else {
+                    pixelIndex += redSkip;
+                    channel = 0;
+                }
+            }
+        }
+
+        this.pixelIndex = pixelIndex;
+        this.channel = channel;
+        this.bits += (to - from) * 8L;
+
+        for (int pattern = 0; pattern < 4; pattern++) {
+            patternAppearances[pattern] += (packedAppearances >>> (16 * pattern)) & 0xFFFF;
+            patternInversions[pattern] += (packedInversions >>> (16 * pattern)) & 0xFFFF;
+        }
+    }
+
+    // Incluye los bytes de los patrones, que se escriben al cerrar
+    @Override
+    public int modifiedBytes() {
+        return format.pixelIndex(LsbiInputStream.colorIndex(bits) - 1) + 1;
+    }
+
+    @Override
+    protected void finish() {
+        // Si hay mas de la mitad de inversiones, invierto el patron
+        int invertedPatterns = 0;
+        for (int pattern = 0; pattern < 4; pattern++) {
+            if (patternInversions[pattern] > patternAppearances[pattern] / 2
+                    && patternAppearances[pattern] != 0) {
+                invertedPatterns |= 1 << pattern;
+            }
+        }
+
+        // Una sola pasada para todos los patrones invertidos, en bytes de color
+        if (invertedPatterns != 0) {
+            kernel.invert(pixels, 0, (int) LsbiInputStream.colorIndex(bits), invertedPatterns);
+        }
+
+        // Agrego los patrones al principio
+        for (int j = 0; j < LsbiInputStream.PATTERN_BYTES; j++) {
+            int patternByte = (invertedPatterns >> j) & 0x1;
+            int index = format.pixelIndex(j);
+            pixels.put(index, (byte) ((pixels.get(index) & 0xFE) | patternByte));
+        }
+    }
+}
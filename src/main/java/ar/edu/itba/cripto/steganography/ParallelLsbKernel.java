@@ -0,0 +1,110 @@
+package ar.edu.itba.cripto.steganography;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// Reparte embed / extract / invert en franjas que procesa otro kernel en paralelo.
+// En LSB1 / LSB4 cada byte del mensaje tiene una posicion fija en la imagen,
+// asi que las franjas (alineadas a bytes del mensaje) son independientes.
+final class ParallelLsbKernel implements LsbKernel {
+
+    // Por debajo de esto no vale la pena repartir (bytes del mensaje o de la imagen en invert)
+    static final int STRIPE_THRESHOLD = 256 * 1024;
+
+    private final LsbKernel kernel;
+    private final int threads;
+
+    ParallelLsbKernel(LsbKernel kernel, int threads) {
+        this.kernel = kernel;
+        this.threads = threads;
+    }
+
+    // Un solo pool de un thread por procesador para todo el proceso (un daemon o un batch
+    // corren muchos jobs); threads limita en cuantas franjas se reparte cada operacion
+    private static final class Pool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void embed(
+            ByteBuffer pixels, int pixelIndex, byte[] src, int off, int len, int bitsPerByte) {
+        int bytesPerHiddenByte = 8 / bitsPerByte;
+        run(
+                len,
+                (from, to) ->
+                        kernel.embed(
+                                pixels,
+                                pixelIndex + from * bytesPerHiddenByte,
+                                src,
+                                off + from,
+                                to - from,
+                                bitsPerByte));
+    }
+
+    @Override
+    public void extract(
+            ByteBuffer pixels, int pixelIndex, byte[] dst, int off, int len, int bitsPerByte) {
+        int bytesPerHiddenByte = 8 / bitsPerByte;
+        run(
+                len,
+                (from, to) ->
+                        kernel.extract(
+                                pixels,
+                                pixelIndex + from * bytesPerHiddenByte,
+                                dst,
+                                off + from,
+                                to - from,
+                                bitsPerByte));
+    }
+
+    @Override
+    public void invert(ByteBuffer pixels, int from, int to, int invertedPatterns) {
+        run(
+                to - from,
+                (stripeFrom, stripeTo) ->
+                        kernel.invert(pixels, from + stripeFrom, from + stripeTo, invertedPatterns));
+    }
+
+    private void run(int length, StripeOperation operation) {
+        int stripes = Math.min(threads, length / STRIPE_THRESHOLD);
+        if (stripes < 2) {
+            operation.apply(0, length);
+            return;
+        }
+        Pool.INSTANCE.invoke(new Stripes(operation, length, stripes));
+    }
+
+    @FunctionalInterface
+    private interface StripeOperation {
+        void apply(int from, int to);
+    }
+
+    // stripes franjas de (casi) el mismo largo, a lo sumo una por thread pedido
+    private static final class Stripes extends RecursiveAction {
+
+        private final StripeOperation operation;
+        private final int length;
+        private final int stripes;
+
+        Stripes(StripeOperation operation, int length, int stripes) {
+            this.operation = operation;
+            this.length = length;
+            this.stripes = stripes;
+        }
+
+        @Override
+        protected void compute() {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(stripes);
+            for (int i = 0; i < stripes; i++) {
+                int from = (int) ((long) length * i / stripes);
+                int to = (int) ((long) length * (i + 1) / stripes);
+                tasks.add(ForkJoinTask.adapt(() -> operation.apply(from, to)));
+            }
+            invokeAll(tasks);
+        }
+    }
+}
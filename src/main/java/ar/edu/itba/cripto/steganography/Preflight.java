@@ -0,0 +1,42 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.cryptography.CryptographyAlgorithm;
+import ar.edu.itba.cripto.cryptography.CryptographyMode;
+import ar.edu.itba.cripto.model.BMPHeader;
+
+import java.io.IOException;
+
+// Chequeo de capacidad con solo el header del cover, antes de cargarlo, leer el
+// payload o derivar la clave
+public final class Preflight {
+
+    private Preflight() {}
+
+    // Bytes que se esconden: el mensaje, o length + mensaje cifrado
+    public static long hiddenLength(
+            long messageLength, CryptographyAlgorithm algorithm, CryptographyMode mode) {
+        if (algorithm == null || mode == null) {
+            return messageLength;
+        }
+        return 4 + mode.getEncryptedLength(messageLength, algorithm);
+    }
+
+    public static void check(String coverFilePath, SteganographyMethod method, long hiddenLength)
+            throws IOException {
+        check(BMPHeader.read(coverFilePath), method, hiddenLength);
+    }
+
+    public static void check(BMPHeader header, SteganographyMethod method, long hiddenLength) {
+        int capacity = method.capacity(header);
+        if (hiddenLength > capacity) {
+            throw new RuntimeException(
+                    "BMP file is not long enough: "
+                            + hiddenLength
+                            + " bytes needed, "
+                            + method
+                            + " capacity is "
+                            + capacity
+                            + " bytes");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ar.edu.itba.cripto.steganography;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Kernels de LSB1 / LSB4 que procesan 8 bytes de la imagen por vez (SWAR).
+// Los kernels *Generic son la implementacion de referencia, byte a byte.
+final class ScalarLsbKernel implements LsbKernel {
+
+    static final ScalarLsbKernel INSTANCE = new ScalarLsbKernel();
+
+    // Vistas de 64 / 32 bits sobre la pixel data y el mensaje, little endian:
+    // el byte k de la palabra es el byte k de la imagen
+    private static final VarHandle PIXEL_LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle MESSAGE_INT =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long LSB1_MASK = 0x0101010101010101L;
+    private static final long LSB4_MASK = 0x0F0F0F0F0F0F0F0FL;
+    private static final long LSB4_LANE_MASK = 0x000F000F000F000FL;
+
+    // Junta el bit 0 de cada byte de la palabra en el byte alto: el byte 0 queda como bit 7
+    private static final long LSB1_GATHER = 0x8040201008040201L;
+
+    // SPREAD1[m]: el bit (7 - k) de m en el bit 0 del byte k
+    private static final long[] SPREAD1 = new long[256];
+    // SPREAD4[m]: el nibble alto de m en el byte 0, el bajo en el byte 1
+    private static final long[] SPREAD4 = new long[256];
+
+    static {
+        for (int m = 0; m < 256; m++) {
+            long spread = 0;
+            for (int k = 0; k < 8; k++) {
+                spread |= (long) ((m >> (7 - k)) & 1) << (8 * k);
+            }
+            SPREAD1[m] = spread;
+            SPREAD4[m] = (m >> 4) | ((long) (m & 0xF) << 8);
+        }
+    }
+
+    private ScalarLsbKernel() {}
+
+    @Override
+    public void embed(
+            ByteBuffer pixels, int pixelIndex, byte[] src, int off, int len, int bitsPerByte) {
+        switch (bitsPerByte) {
+            case 1 -> embed1(pixels, pixelIndex, src, off, len);
+            case 4 -> embed4(pixels, pixelIndex, src, off, len);
+            default -> embedGeneric(pixels, pixelIndex, src, off, len, bitsPerByte);
+        }
+    }
+
+    @Override
+    public void extract(
+            ByteBuffer pixels, int pixelIndex, byte[] dst, int off, int len, int bitsPerByte) {
+        switch (bitsPerByte) {
+            case 1 -> extract1(pixels, pixelIndex, dst, off, len);
+            case 4 -> extract4(pixels, pixelIndex, dst, off, len);
+            default -> extractGeneric(pixels, pixelIndex, dst, off, len, bitsPerByte);
+        }
+    }
+
+    // 1 byte del mensaje = 8 bytes de la imagen = 1 long
+    static void embed1(ByteBuffer pixels, int pixelIndex, byte[] src, int off, int len) {
+        for (int i = 0; i < len; i++, pixelIndex += 8) {
+            long word = (long) PIXEL_LONG.get(pixels, pixelIndex);
+            word = (word & ~LSB1_MASK) | SPREAD1[src[off + i] & 0xFF];
+            PIXEL_LONG.set(pixels, pixelIndex, word);
+        }
+    }
+
+    static void extract1(ByteBuffer pixels, int pixelIndex, byte[] dst, int off, int len) {
+        for (int i = 0; i < len; i++, pixelIndex += 8) {
+            long bits = (long) PIXEL_LONG.get(pixels, pixelIndex) & LSB1_MASK;
+            dst[off + i] = (byte) ((bits * LSB1_GATHER) >>> 56);
+        }
+    }
+
+    // 4 bytes del mensaje = 8 bytes de la imagen = 1 long
+    static void embed4(ByteBuffer pixels, int pixelIndex, byte[] src, int off, int len) {
+        int words = len / 4;
+        for (int i = 0; i < words; i++, off += 4, pixelIndex += 8) {
+            long spread =
+                    SPREAD4[src[off] & 0xFF]
+                            | SPREAD4[src[off + 1] & 0xFF] << 16
+                            | SPREAD4[src[off + 2] & 0xFF] << 32
+                            | SPREAD4[src[off + 3] & 0xFF] << 48;
+            long word = (long) PIXEL_LONG.get(pixels, pixelIndex);
+            PIXEL_LONG.set(pixels, pixelIndex, (word & ~LSB4_MASK) | spread);
+        }
+        embedGeneric(pixels, pixelIndex, src, off, len % 4, 4);
+    }
+
+    static void extract4(ByteBuffer pixels, int pixelIndex, byte[] dst, int off, int len) {
+        int words = len / 4;
+        for (int i = 0; i < words; i++, off += 4, pixelIndex += 8) {
+            long nibbles = (long) PIXEL_LONG.get(pixels, pixelIndex) & LSB4_MASK;
+
+            // Cada lane de 16 bits: nibble alto en el byte 0, bajo en el byte 1
+            long bytes = ((nibbles & LSB4_LANE_MASK) << 4) | ((nibbles >>> 8) & LSB4_LANE_MASK);
+
+            // Compacto los bytes 0, 2, 4, 6 en un int
+            bytes = (bytes | (bytes >>> 8)) & 0x0000FFFF0000FFFFL;
+            bytes = bytes | (bytes >>> 16);
+            MESSAGE_INT.set(dst, off, (int) bytes);
+        }
+        extractGeneric(pixels, pixelIndex, dst, off, len % 4, 4);
+    }
+
+    @Override
+    public void invert(ByteBuffer pixels, int from, int to, int invertedPatterns) {
+        // 0: azul, 1: verde, 2: rojo
+        int channel = from % 3;
+
+        for (int i = from; i < to; i++) {
+            byte imageByte = pixels.get(i);
+            int inverted = (invertedPatterns >> ((imageByte & 0x6) >> 1)) & 0x1;
+
+            // Skip red byte
+            if (channel == 2) {
+                channel = 0;
+            } else {
+                pixels.put(i, (byte) (imageByte ^ inverted));
+                channel++;
+            }
+        }
+    }
+
+    static void embedGeneric(
+            ByteBuffer pixels, int pixelIndex, byte[] src, int off, int len, int bitsPerByte) {
+        // mask: pone en 0 los bits menos significativos
+        int mask = (0xFF << bitsPerByte) & 0xFF;
+        int bitsMask = (1 << bitsPerByte) - 1;
+
+        for (int i = 0; i < len; i++) {
+            byte currentByte = src[off + i];
+            for (int bitIndex = 0; bitIndex < 8; bitIndex += bitsPerByte) {
+                // Obtengo los bitsPerByte del byte
+                int bitsToEmbed = (currentByte >> (8 - (bitsPerByte + bitIndex))) & bitsMask;
+
+                // Modifico los bits menos significativos de la imagen con los del mensaje
+                byte imageByte = pixels.get(pixelIndex);
+                pixels.put(pixelIndex, (byte) ((imageByte & mask) | bitsToEmbed));
+                pixelIndex++;
+            }
+        }
+    }
+
+    static void extractGeneric(
+            ByteBuffer pixels, int pixelIndex, byte[] dst, int off, int len, int bitsPerByte) {
+        int bitsMask = (1 << bitsPerByte) - 1;
+
+        for (int i = 0; i < len; i++) {
+            int byteValue = 0;
+            for (int bitIndex = 0; bitIndex < 8; bitIndex += bitsPerByte) {
+                byteValue = (byteValue << bitsPerByte) | (pixels.get(pixelIndex) & bitsMask);
+                pixelIndex++;
+            }
+            dst[off + i] = (byte) byteValue;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ar.edu.itba.cripto.steganography;
+
+public enum SteganographyBackend {
+    // Kernels SWAR de 64 bits
+    SCALAR,
+    // Vector API (jdk.incubator.vector), escalar si no esta disponible
+    VECTOR,
+    // VECTOR si esta disponible, si no SCALAR
+    AUTO;
+
+    // VectorLsbKernel solo se compila con -Pvector (usa un modulo incubator) y el modulo solo
+    // existe si la JVM arranco con --add-modules jdk.incubator.vector: hacen falta los dos
+    private static final LsbKernel VECTOR_KERNEL = loadVectorKernel();
+
+    public static boolean isVectorAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    LsbKernel kernel() {
+        if (this == SCALAR || VECTOR_KERNEL == null) {
+            return ScalarLsbKernel.INSTANCE;
+        }
+        return VECTOR_KERNEL;
+    }
+
+    private static LsbKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (LsbKernel) Class.forName("ar.edu.itba.cripto.steganography.VectorLsbKernel")
+                    .getDeclaredField("INSTANCE")
+                    .get(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.cryptography.Cryptography;
+import ar.edu.itba.cripto.cryptography.CryptographyAlgorithm;
+import ar.edu.itba.cripto.cryptography.CryptographyMode;
+import ar.edu.itba.cripto.model.BMP;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+// -steg AUTO: lee el header con cada metodo (unos pocos bytes de la imagen) y se queda con
+// el mas creible. Con password prueba ademas cada algoritmo y modo, en paralelo.
+public final class SteganographyDetector {
+
+    // length plausible, extension donde tiene que estar, extension alfanumerica
+    static final int LENGTH_SCORE = 1;
+    static final int FRAME_SCORE = 2;
+    static final int NAME_SCORE = 1;
+
+    // Por debajo de esto no se considera que haya un mensaje
+    private static final int MIN_SCORE = LENGTH_SCORE + FRAME_SCORE;
+
+    // ".\0"
+    private static final int MIN_EXTENSION_LENGTH = 2;
+
+    // Bloques cifrados que se descifran para leer el length interno
+    private static final int PROBE_BLOCKS = 2;
+
+    private SteganographyDetector() {}
+
+    // Sin cifrado
+    public static Optional<Detection> detect(BMP image, SteganographyOptions options) {
+        return best(probePlain(image, options));
+    }
+
+    public static Optional<Detection> detect(
+            BMP image,
+            SteganographyOptions options,
+            String password,
+            List<CryptographyAlgorithm> algorithms,
+            List<CryptographyMode> modes) {
+        return best(probeEncrypted(image, options, password, algorithms, modes));
+    }
+
+    static List<Detection> probePlain(BMP image, SteganographyOptions options) {
+        List<Detection> candidates = new ArrayList<>();
+        for (SteganographyMethod method : SteganographyMethod.values()) {
+            SteganographyInputStream in = method.newInputStream(image, options);
+            if (in.available() < 4) {
+                continue;
+            }
+            int length = in.readInt();
+            if (Compression.isCompressed(length)) {
+                // El archivo comprimido no tiene la extension a la vista, solo el header de zlib
+                int cmf = in.read();
+                int flg = in.read();
+                if (flg >= 0 && Compression.isZlibHeader(cmf, flg)) {
+                    candidates.add(new Detection(method, null, null, length, LENGTH_SCORE + FRAME_SCORE));
+                }
+                continue;
+            }
+            if (length < 0 || length > in.available() - MIN_EXTENSION_LENGTH) {
+                continue;
+            }
+
+            // La extension esta justo despues del archivo
+            in.skip(length);
+            int score = LENGTH_SCORE + extensionScore(in);
+            candidates.add(new Detection(method, null, null, length, score));
+        }
+        return candidates;
+    }
+
+    static List<Detection> probeEncrypted(
+            BMP image,
+            SteganographyOptions options,
+            String password,
+            List<CryptographyAlgorithm> algorithms,
+            List<CryptographyMode> modes) {
+
+        // Una pasada por metodo para el length y los primeros bloques cifrados
+        List<Candidate> candidates = new ArrayList<>();
+        for (SteganographyMethod method : SteganographyMethod.values()) {
+            SteganographyInputStream in = method.newInputStream(image, options);
+            if (in.available() < 4) {
+                continue;
+            }
+            int length = in.readInt();
+            if (length <= 0 || length > in.available()) {
+                continue;
+            }
+            byte[] prefix = new byte[Math.min(length, PROBE_BLOCKS * 16)];
+            in.readFully(prefix, 0, prefix.length);
+
+            for (CryptographyAlgorithm algorithm : algorithms) {
+                for (CryptographyMode mode : modes) {
+                    candidates.add(new Candidate(method, algorithm, mode, length, prefix));
+                }
+            }
+        }
+
+        // Cada combinacion deriva su clave, eso es lo caro
+        return candidates.parallelStream()
+                .map(candidate -> candidate.probe(password))
+                .toList();
+    }
+
+    private static Optional<Detection> best(List<Detection> candidates) {
+        return candidates.stream()
+                .filter(candidate -> candidate.score() >= MIN_SCORE)
+                .max(Comparator.comparingInt(Detection::score));
+    }
+
+    // .extension\0 dentro de los MAX_EXTENSION_LENGTH bytes siguientes
+    private static int extensionScore(InputStream in) {
+        try {
+            if (in.read() != '.') {
+                return 0;
+            }
+            boolean alphanumeric = true;
+            for (int i = 1; i < Extract.MAX_EXTENSION_LENGTH; i++) {
+                int b = in.read();
+                if (b < 0) {
+                    return 0;
+                }
+                if (b == 0) {
+                    return FRAME_SCORE + (alphanumeric && i > 1 ? NAME_SCORE : 0);
+                }
+                alphanumeric &= Character.isLetterOrDigit(b) && b < 0x80;
+            }
+            return 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private record Candidate(
+            SteganographyMethod method,
+            CryptographyAlgorithm algorithm,
+            CryptographyMode mode,
+            int length,
+            byte[] prefix) {
+
+        Detection probe(String password) {
+            return new Detection(method, algorithm, mode, length, score(password));
+        }
+
+        private int score(String password) {
+            // Con padding el texto cifrado es un multiplo del bloque
+            int blockSize = algorithm.getBlockSize();
+            if (mode.usesPadding() && length % blockSize != 0) {
+                return 0;
+            }
+
+            int innerLength;
+            byte[] header;
+            try {
+                Cryptography cryptography = new Cryptography(algorithm, mode, password);
+                InputStream plain = cryptography.decrypt(new ByteArrayInputStream(prefix), prefix.length);
+                header = plain.readNBytes(6);
+                if (header.length < 4) {
+                    return LENGTH_SCORE;
+                }
+                innerLength = (header[0] & 0xFF) << 24 | (header[1] & 0xFF) << 16
+                        | (header[2] & 0xFF) << 8 | (header[3] & 0xFF);
+            } catch (IOException | RuntimeException e) {
+                // Padding invalido, bloque incompleto
+                return 0;
+            }
+            // Comprimido, el length interno es el del archivo y despues va el header de zlib
+            if (Compression.isCompressed(innerLength)) {
+                boolean zlib = header.length == 6
+                        && Compression.isZlibHeader(header[4] & 0xFF, header[5] & 0xFF);
+                return zlib ? LENGTH_SCORE + FRAME_SCORE : LENGTH_SCORE;
+            }
+            if (innerLength < 0) {
+                return LENGTH_SCORE;
+            }
+
+            // filelength + file + extension tiene que cifrarse exactamente en length bytes
+            for (int extension = MIN_EXTENSION_LENGTH; extension <= Extract.MAX_EXTENSION_LENGTH; extension++) {
+                long message = 4L + innerLength + extension;
+                if (mode.getEncryptedLength(message, algorithm) == length) {
+                    return LENGTH_SCORE + FRAME_SCORE;
+                }
+            }
+            return LENGTH_SCORE;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ar.edu.itba.cripto.steganography;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+// Lee los bytes ocultos de la pixel data sin copiarla ni alocar por byte.
+// Cada byte oculto tiene una posicion fija en la imagen, asi que skip/mark/reset son O(1).
+public abstract class SteganographyInputStream extends InputStream {
+
+    protected final ByteBuffer pixels;
+    private final int capacity;
+    private int position;
+    private int mark;
+
+    protected SteganographyInputStream(ByteBuffer pixels, int capacity) {
+        this.pixels = pixels;
+        this.capacity = Math.max(capacity, 0);
+    }
+
+    // Decodifica el byte oculto index
+    protected abstract byte decode(int index);
+
+    // Decodifica len bytes ocultos a partir del byte oculto index
+    protected void decode(int index, byte[] dst, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            dst[off + i] = decode(index + i);
+        }
+    }
+
+    @Override
+    public int read() {
+        if (position >= capacity) {
+            return -1;
+        }
+        return decode(position++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b) {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int n = Math.min(len, capacity - position);
+        if (n <= 0) {
+            return -1;
+        }
+        decode(position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    public void readFully(byte[] b, int off, int len) {
+        if (len > capacity - position) {
+            throw new RuntimeException("Hidden data exceeds BMP capacity");
+        }
+        decode(position, b, off, len);
+        position += len;
+    }
+
+    // Entero big endian, como lo escribe Embed
+    public int readInt() {
+        if (capacity - position < 4) {
+            throw new RuntimeException("Hidden data exceeds BMP capacity");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | read();
+        }
+        return value;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, capacity - position));
+        position += (int) skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return capacity - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+        mark = position;
+    }
+
+    @Override
+    public void reset() {
+        position = mark;
+    }
+}
@@ -1,307 +1,146 @@
 package ar.edu.itba.cripto.steganography;
 
 import ar.edu.itba.cripto.model.BMP;
+import ar.edu.itba.cripto.model.BMPHeader;
+import ar.edu.itba.cripto.model.PixelFormat;
 
-import java.util.*;
-import java.util.function.Predicate;
+import java.nio.ByteBuffer;
 
 public enum SteganographyMethod {
     LSB1 {
         @Override
-        public BMP embed(byte[] message, BMP image) {
-            return lsbEmbed(message, image, 1);
+        public int capacity(int colorBytes) {
+            return colorBytes / 8;
         }
 
         @Override
-        public byte[] extract(BMP image, boolean containsExtension) {
-            return lsbExtract(image, containsExtension, 1);
+        public SteganographyOutputStream newOutputStream(BMP image, SteganographyOptions options) {
+            PixelFormat format = image.getPixelFormat();
+            return new LsbOutputStream(image.pixels(), format, 1, options.kernel(format));
+        }
+
+        @Override
+        SteganographyInputStream newInputStream(
+                ByteBuffer pixels, PixelFormat format, SteganographyOptions options) {
+            return new LsbInputStream(pixels, format, 1, options.kernel(format));
         }
     },
     LSB4 {
         @Override
-        public BMP embed(byte[] message, BMP image) {
-            return lsbEmbed(message, image, 4);
+        public int capacity(int colorBytes) {
+            return colorBytes / 2;
         }
 
         @Override
-        public byte[] extract(BMP image, boolean containsExtension) {
-            return lsbExtract(image, containsExtension, 4);
+        public SteganographyOutputStream newOutputStream(BMP image, SteganographyOptions options) {
+            PixelFormat format = image.getPixelFormat();
+            return new LsbOutputStream(image.pixels(), format, 4, options.kernel(format));
+        }
+
+        @Override
+        SteganographyInputStream newInputStream(
+                ByteBuffer pixels, PixelFormat format, SteganographyOptions options) {
+            return new LsbInputStream(pixels, format, 4, options.kernel(format));
         }
     },
     LSBI {
         @Override
-        public BMP embed(byte[] message, BMP image) {
-            byte[] originalPixelData = image.getPixelData();
-
-            // 4 bytes needed for storing the inversion pattern
-            // Red byte is skipped, so we need more space
-            int bytesNeeded = (3 * message.length * 8) / 2 + 4;
-
-            if (originalPixelData.length < bytesNeeded) {
-                throw new RuntimeException("BMP file is not long enough");
-            }
-
-            /*
-            0000 0000
-            0000 0010
-            0000 0100
-            0000 0110
-             */
-            byte[] patterns = {0x0, 0x2, 0x4, 0x6};
-            Map<Byte, Long> patternAppearances = new HashMap<>();
-            Map<Byte, Long> patternInversions = new HashMap<>();
-
-            int messageIndex = 0;
-            int bitIndex = 0;
-
-            int i;
-            for (i = 4; i < originalPixelData.length; i++) {
-
-                // Skip red byte
-                if (i % 3 == 2) {
-                    continue;
-                }
-
-                // Si ya itere toodo el byte del mensaje paso al sig.
-                if (bitIndex == 8) {
-                    bitIndex = 0;
-                    messageIndex++;
-                }
-
-                // Termine el mensaje, salgo
-                if (messageIndex == message.length) {
-                    break;
-                }
-
-                // Obtengo el bit del mensaje
-                byte currentByte = message[messageIndex];
-                int bitToEmbed = (currentByte >> (7 - bitIndex)) & 1;
-
-                byte imageByte = originalPixelData[i];
-
-                // Cuento apariciones de los patrones
-                byte pattern = (byte) (imageByte & 0x6);
-                patternAppearances.merge(pattern, 1L, Long::sum);
-
-                // Modifico el bit menos significativo de la imagen con el del mensaje
-                byte modifiedImageByte = (byte) ((imageByte & 0xFE) | bitToEmbed);
-                originalPixelData[i] = modifiedImageByte;
-
-                // Guardo la inversion
-                if (imageByte != modifiedImageByte) {
-                    patternInversions.merge(pattern, 1L, Long::sum);
-                }
-
-                bitIndex++;
-            }
-
-            int lastByte = i;
-
-            byte[] patternBytes = new byte[4];
-
-            // Veo si hay que invertir
-            for (int j = 0; j < patterns.length; j++) {
-                byte pattern = patterns[j];
-                long patternAppearancesCount = patternAppearances.getOrDefault(pattern, 0L);
-                long patternInversionsCount = patternInversions.getOrDefault(pattern, 0L);
-
-                if (patternAppearancesCount == 0) {
-                    continue;
-                }
-
-                // Si hay mas de la mitad de inversiones, invierto
-                if (patternInversionsCount > patternAppearancesCount / 2) {
-
-                    for (int k = 0; k < lastByte; k++) {
-
-                        // Skip red byte
-                        if (k % 3 == 2) {
-                            continue;
-                        }
-
-                        byte imageByte = originalPixelData[k];
-                        byte patternByte = (byte) (imageByte & 0x6);
-
-                        if (patternByte == pattern) {
-                            originalPixelData[k] = (byte) (imageByte ^ 0x1);
-                        }
-                    }
-
-                    patternBytes[j] = 0x1;
-                } else {
-                    patternBytes[j] = 0x0;
-                }
-            }
-
-            // Agrego los patrones al principio
-            for (int j = 0; j < 4; j++) {
-                originalPixelData[j] = (byte) ((originalPixelData[j] & 0xFE) | patternBytes[j]);
-            }
-
-            image.setPixelData(originalPixelData);
-            return image;
+        public int capacity(int colorBytes) {
+            return LsbiInputStream.usableBytes(colorBytes) / 8;
         }
 
         @Override
-        public byte[] extract(BMP image, boolean containsExtension) {
-            byte[] pixelData = image.getPixelData();
-            List<Byte> hiddenData = new ArrayList<>();
-
-            Predicate<Integer> cutCondition = (length -> hiddenData.size() >= 4 + length);
-            if (containsExtension) {
-                cutCondition =
-                        cutCondition.and(length -> hiddenData.get(hiddenData.size() - 1) == '\0');
-            }
-
-            int byteValue = 0;
-            int bitIndex = 0;
-            int hiddenDataLength = 0;
-
-            Map<Byte, Boolean> patternInverted = new HashMap<>();
-            byte[] patterns = {0x0, 0x2, 0x4, 0x6};
-
-            for (int i = 0; i < 4; i++) {
-                boolean inverted = (pixelData[i] & 0x1) == 0x1;
-                patternInverted.put(patterns[i], inverted);
-            }
-
-            for (int j = 4; j < pixelData.length; j++) {
-
-                // Skipeo el rojo
-                if (j % 3 == 2) {
-                    continue;
-                }
-
-                byte pixelDatum = pixelData[j];
-
-                byte pattern = (byte) (pixelDatum & 0x6);
-                boolean inverted = patternInverted.get(pattern);
-
-                // Si esta invertido, invierto el bit
-                byteValue = (byteValue << 1) | ((pixelDatum & 0x1) ^ (inverted ? 0x1 : 0x0));
-                bitIndex++;
-
-                if (bitIndex == 8) {
-                    hiddenData.add((byte) byteValue);
-                    bitIndex = 0;
-                    byteValue = 0;
+        public SteganographyOutputStream newOutputStream(BMP image, SteganographyOptions options) {
+            PixelFormat format = image.getPixelFormat();
+            return new LsbiOutputStream(image.pixels(), format, options.kernel(format));
+        }
 
-                    // extraigo el length
-                    if (hiddenData.size() == 4) {
-                        hiddenDataLength =
-                                ((hiddenData.get(0)) & 0xFF) << 24
-                                        | ((hiddenData.get(1)) & 0xFF) << 16
-                                        | ((hiddenData.get(2)) & 0xFF) << 8
-                                        | ((hiddenData.get(3)) & 0xFF);
-                        if (hiddenDataLength <= 0) {
-                            throw new RuntimeException("No hidden data found");
-                        }
-                    } else if (cutCondition.test(hiddenDataLength)) {
-                        break;
-                    }
-                }
-            }
-            byte[] result = new byte[hiddenData.size()];
-            for (int i = 0; i < hiddenData.size(); i++) {
-                result[i] = hiddenData.get(i);
-            }
-            return result;
+        @Override
+        SteganographyInputStream newInputStream(
+                ByteBuffer pixels, PixelFormat format, SteganographyOptions options) {
+            return new LsbiInputStream(pixels, format);
         }
     };
 
-    private static BMP lsbEmbed(byte[] message, BMP image, int bitsPerByte) {
-        byte[] pixelData = image.getPixelData();
-
-        // mask: pone en 0 los bits menos significativos
-        int mask = (0xFF << (bitsPerByte)) & 0xFF;
-        int bytesNeeded = message.length * (8 / bitsPerByte);
-
-        if (pixelData.length < bytesNeeded) {
-            throw new RuntimeException("BMP file is not long enough");
-        }
+    // Bytes que se pueden esconder en colorBytes bytes de color (ver PixelFormat).
+    // LSBI no usa el rojo ni los 4 bytes de los patrones.
+    public abstract int capacity(int colorBytes);
 
-        // i: itera los bytes de pixel data
-        // messageIndex: itera los bytes del mensaje
-        // bitIndex: itera el byte actual
-        int messageIndex = 0;
-        int bitIndex = 0;
+    public int capacity(BMPHeader header) {
+        return capacity(header.colorBytes());
+    }
 
-        for (int i = 0; i < pixelData.length; i++) {
+    public BMP embed(byte[] message, BMP image) {
+        return embed(message, image, SteganographyOptions.DEFAULT);
+    }
 
-            // Si ya itere toodo el byte del mensaje paso al sig.
-            if (bitIndex == 8) {
-                bitIndex = 0;
-                messageIndex++;
-            }
+    public BMP embed(byte[] message, BMP image, SteganographyOptions options) {
+        // Si no entra, write falla sin tocar la imagen y no se cierra: el close de LSBI
+        // escribiria los patrones igual
+        SteganographyOutputStream out = newOutputStream(image, options);
+        out.write(message);
+        out.close();
+        return image;
+    }
 
-            // Termine el mensaje, salgo
-            if (messageIndex == message.length) {
-                break;
-            }
+    public SteganographyOutputStream newOutputStream(BMP image) {
+        return newOutputStream(image, SteganographyOptions.DEFAULT);
+    }
 
-            // Obtengo los bitsPerByte del byte
-            byte currentByte = message[messageIndex];
-            int bitsToEmbed =
-                    (currentByte >> (8 - (bitsPerByte + bitIndex))) & ((1 << bitsPerByte) - 1);
+    // Escritura de los bytes ocultos sin copiar la imagen, hay que cerrarlo al terminar
+    public abstract SteganographyOutputStream newOutputStream(
+            BMP image, SteganographyOptions options);
 
-            // Modifico el bit menos significativo de la imagen con el del mensaje
-            byte imageByte = pixelData[i];
-            byte modifiedImageByte = (byte) ((imageByte & mask) | bitsToEmbed);
-            pixelData[i] = modifiedImageByte;
+    public SteganographyInputStream newInputStream(BMP image) {
+        return newInputStream(image, SteganographyOptions.DEFAULT);
+    }
 
-            bitIndex += bitsPerByte;
-        }
+    // Lectura de los bytes ocultos sin copiar la imagen
+    public SteganographyInputStream newInputStream(BMP image, SteganographyOptions options) {
+        return newInputStream(image.pixels(), image.getPixelFormat(), options);
+    }
 
-        image.setPixelData(pixelData);
+    // pixels puede ser solo el principio de la pixel data, para leer el header sin cargar la imagen
+    abstract SteganographyInputStream newInputStream(
+            ByteBuffer pixels, PixelFormat format, SteganographyOptions options);
 
-        return image;
+    public byte[] extract(BMP image, boolean containsExtension) {
+        return extract(image, containsExtension, SteganographyOptions.DEFAULT);
     }
 
-    private static byte[] lsbExtract(BMP image, boolean containsExtension, int bitsPerByte) {
-        byte[] pixelData = image.getPixelData();
-        List<Byte> hiddenData = new ArrayList<>();
-        int byteValue = 0;
-        int bitIndex = 0;
-        int hiddenDataLength = 0;
+    public byte[] extract(BMP image, boolean containsExtension, SteganographyOptions options) {
+        SteganographyInputStream in = newInputStream(image, options);
+
+        // Primero el length, asi se puede dimensionar el resultado
+        int hiddenDataLength = in.readInt();
+        if (hiddenDataLength <= 0 || hiddenDataLength > in.available()) {
+            throw new RuntimeException("No hidden data found");
+        }
 
-        Predicate<Integer> cutCondition = (length -> hiddenData.size() >= 4 + length);
+        // Busco el \0 de la extension para saber su largo y vuelvo
+        int extensionLength = 0;
         if (containsExtension) {
-            cutCondition =
-                    cutCondition.and(length -> hiddenData.get(hiddenData.size() - 1) == '\0');
+            in.mark(0);
+            in.skip(hiddenDataLength);
+            int b;
+            do {
+                b = in.read();
+                if (b >= 0) {
+                    extensionLength++;
+                }
+            } while (b > 0);
+            in.reset();
         }
 
-        for (byte pixelDatum : pixelData) {
-            byteValue = (byteValue << bitsPerByte) | (pixelDatum & ((1 << bitsPerByte) - 1));
-            bitIndex += bitsPerByte;
+        // result: length + datos (+ extension)
+        byte[] result = new byte[4 + hiddenDataLength + extensionLength];
+        result[0] = (byte) (hiddenDataLength >>> 24);
+        result[1] = (byte) (hiddenDataLength >>> 16);
+        result[2] = (byte) (hiddenDataLength >>> 8);
+        result[3] = (byte) hiddenDataLength;
 
-            if (bitIndex == 8) {
-                hiddenData.add((byte) byteValue);
-                bitIndex = 0;
-                byteValue = 0;
+        in.readFully(result, 4, hiddenDataLength + extensionLength);
 
-                // extraigo el length
-                if (hiddenData.size() == 4) {
-                    hiddenDataLength =
-                            ((hiddenData.get(0)) & 0xFF) << 24
-                                    | ((hiddenData.get(1)) & 0xFF) << 16
-                                    | ((hiddenData.get(2)) & 0xFF) << 8
-                                    | ((hiddenData.get(3)) & 0xFF);
-                    if (hiddenDataLength <= 0) {
-                        throw new RuntimeException("No hidden data found");
-                    }
-                } else if (cutCondition.test(hiddenDataLength)) {
-                    break;
-                }
-            }
-        }
-        byte[] result = new byte[hiddenData.size()];
-        for (int i = 0; i < hiddenData.size(); i++) {
-            result[i] = hiddenData.get(i);
-        }
         return result;
     }
-
-    public abstract BMP embed(byte[] message, BMP image);
-
-    public abstract byte[] extract(BMP image, boolean containsExtension);
 }
@@ -0,0 +1,34 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.model.PixelFormat;
+
+// Como se ejecutan los metodos de esteganografia, no cambia el resultado.
+// threads > 1 reparte los mensajes grandes en franjas que se procesan en paralelo.
+public record SteganographyOptions(SteganographyBackend backend, int threads) {
+
+    // Los threads salen de un pool compartido con uno por procesador, mas no suman
+    public static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
+    public static final SteganographyOptions DEFAULT =
+            new SteganographyOptions(SteganographyBackend.AUTO, 1);
+
+    public SteganographyOptions {
+        if (threads < 1 || threads > MAX_THREADS) {
+            throw new IllegalArgumentException("Threads must be between 1 and " + MAX_THREADS);
+        }
+    }
+
+    public SteganographyOptions(SteganographyBackend backend) {
+        this(backend, 1);
+    }
+
+    // Los pixeles de 32 bits tienen su propio kernel escalar, que saltea el alpha
+    LsbKernel kernel(PixelFormat format) {
+        LsbKernel kernel =
+                format.bytesPerPixel() == 4 ? Bgra32LsbKernel.INSTANCE : backend.kernel();
+        if (threads == 1) {
+            return kernel;
+        }
+        return new ParallelLsbKernel(kernel, threads);
+    }
+}
@@ -0,0 +1,79 @@
+package ar.edu.itba.cripto.steganography;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+// Esconde bytes en la pixel data a medida que llegan, sin copiar la imagen.
+// Hay que cerrarlo para que el metodo termine de escribir (por ejemplo los patrones de LSBI).
+public abstract class SteganographyOutputStream extends OutputStream {
+
+    protected final ByteBuffer pixels;
+    private final int capacity;
+    private final byte[] single = new byte[1];
+    private int position;
+    private boolean closed;
+
+    protected SteganographyOutputStream(ByteBuffer pixels, int capacity) {
+        this.pixels = pixels;
+        this.capacity = Math.max(capacity, 0);
+    }
+
+    // Esconde len bytes de src como los bytes ocultos index, index + 1, ...
+    protected abstract void encode(int index, byte[] src, int off, int len);
+
+    // Se llama una sola vez, al cerrar
+    protected void finish() {}
+
+    @Override
+    public void write(int b) {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    // No modifica la imagen si los bytes no entran
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (closed) {
+            throw new IllegalStateException("Stream closed");
+        }
+        if (len > capacity - position) {
+            throw new RuntimeException("BMP file is not long enough");
+        }
+        encode(position, b, off, len);
+        position += len;
+    }
+
+    // Entero big endian, como lo lee SteganographyInputStream
+    public void writeInt(int value) {
+        write(new byte[] {
+            (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value
+        });
+    }
+
+    // Bytes que todavia se pueden esconder
+    public int remaining() {
+        return capacity - position;
+    }
+
+    // Bytes ya escondidos
+    protected int written() {
+        return position;
+    }
+
+    // Largo del prefijo de la pixel data que se pudo haber modificado (todos los metodos
+    // escriben desde el principio), para escribir solo eso en la salida
+    public abstract int modifiedBytes();
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            finish();
+        }
+    }
+}
@@ -3,22 +3,45 @@ package ar.edu.itba.cripto;
 import ar.edu.itba.cripto.cryptography.Cryptography;
 import ar.edu.itba.cripto.cryptography.CryptographyAlgorithm;
 import ar.edu.itba.cripto.cryptography.CryptographyMode;
+import ar.edu.itba.cripto.model.BMP;
+import ar.edu.itba.cripto.model.BMPHeader;
+import ar.edu.itba.cripto.model.PixelFormat;
+import ar.edu.itba.cripto.model.PixelStorage;
 import ar.edu.itba.cripto.steganography.Embed;
 import ar.edu.itba.cripto.steganography.Extract;
+import ar.edu.itba.cripto.steganography.Preflight;
 
+import ar.edu.itba.cripto.steganography.SteganographyBackend;
+import ar.edu.itba.cripto.steganography.SteganographyInputStream;
 import ar.edu.itba.cripto.steganography.SteganographyMethod;
+import ar.edu.itba.cripto.steganography.SteganographyOptions;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 public class AppTest {
 
     private static final String COVER_FILE_PATH = "src/test/resources/cover.bmp";
@@ -111,4 +134,770 @@ public class AppTest {
                         == -1;
         Assertions.assertTrue(areEqual);
     }
+
+    @ParameterizedTest
+    @EnumSource(PixelStorage.class)
+    public void appTestPixelStorage(PixelStorage storage) throws IOException {
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+        byte[] originalCover = Files.readAllBytes(new File(COVER_FILE_PATH).toPath());
+
+        // Embed
+        Embed embed = new Embed();
+        embed.setInput(MESSAGE_FILE_PATH);
+        embed.setCover(COVER_FILE_PATH, storage);
+        embed.setOutput(hiddenFilePath);
+        embed.setSteganographyMethod("LSB1");
+        embed.execute();
+
+        // El cover no se modifica aunque este mapeado
+        Assertions.assertArrayEquals(
+                originalCover, Files.readAllBytes(new File(COVER_FILE_PATH).toPath()));
+
+        // Extract
+        Extract extract = new Extract();
+        extract.setCover(hiddenFilePath, storage);
+        extract.setOutput(outputFilePath);
+        extract.setSteganographyMethod("LSB1");
+        extract.execute();
+
+        // Compare
+        boolean areEqual =
+                Files.mismatch(
+                                new File(MESSAGE_FILE_PATH).toPath(),
+                                new File(outputFilePath + ".java").toPath())
+                        == -1;
+        Assertions.assertTrue(areEqual);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"auto", "mmap", "heap"})
+    public void appTestEmbedInPlace(String load) throws IOException {
+        String coverFilePath = tempDir.getAbsolutePath() + "/cover.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+
+        // Mas de 8 MiB, asi con auto tambien se mapea
+        new BMP(2000, 1500).writeBMP(coverFilePath);
+        long size = Files.size(Path.of(coverFilePath));
+
+        // -out es el mismo archivo que -p
+        Assertions.assertEquals(0, Configuration.run(
+                new String[] {"-embed", "-in", MESSAGE_FILE_PATH, "-p", coverFilePath, "-out", coverFilePath,
+                        "-steg", "LSB1", "-load", load},
+                new PrintStream(new ByteArrayOutputStream()), System.err));
+        Assertions.assertEquals(size, Files.size(Path.of(coverFilePath)));
+        try (Stream<Path> files = Files.list(tempDir.toPath())) {
+            Assertions.assertEquals(1, files.count());
+        }
+
+        Assertions.assertEquals(0, Configuration.run(
+                new String[] {"-extract", "-p", coverFilePath, "-out", outputFilePath, "-steg", "LSB1"},
+                new PrintStream(new ByteArrayOutputStream()), System.err));
+        Assertions.assertEquals(
+                -1, Files.mismatch(Path.of(MESSAGE_FILE_PATH), Path.of(outputFilePath + ".java")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"LSB1", "LSB4", "LSBI"})
+    public void appTestLargePayload(String steganographyMethod) throws IOException {
+        String coverFilePath = tempDir.getAbsolutePath() + "/cover.bmp";
+        String messageFilePath = tempDir.getAbsolutePath() + "/message.bin";
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+
+        // Payload de varios bloques de lectura
+        BMP cover = new BMP(6000, 3000);
+        cover.writeBMP(coverFilePath);
+        byte[] message = new byte[4 * 1024 * 1024 + 100_017];
+        new Random(42).nextBytes(message);
+        Files.write(new File(messageFilePath).toPath(), message);
+
+        // Embed
+        Embed embed = new Embed();
+        embed.setInput(messageFilePath);
+        embed.setCover(coverFilePath);
+        embed.setOutput(hiddenFilePath);
+        embed.setSteganographyMethod(steganographyMethod);
+        embed.execute();
+
+        // Extract
+        Extract extract = new Extract();
+        extract.setCover(hiddenFilePath);
+        extract.setOutput(outputFilePath);
+        extract.setSteganographyMethod(steganographyMethod);
+        extract.execute();
+
+        // Compare
+        Assertions.assertArrayEquals(
+                message, Files.readAllBytes(new File(outputFilePath + ".bin").toPath()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {4 * 1024 * 1024 - 1, 4 * 1024 * 1024, 8 * 1024 * 1024 + 1})
+    public void appTestChunkedExtract(int messageLength) throws IOException {
+        Path coverFile = new File(tempDir, "cover.bmp").toPath();
+        Path messageFile = new File(tempDir, "message.bin").toPath();
+        Path hiddenFile = new File(tempDir, "hidden.bmp").toPath();
+        Path outputFile = new File(tempDir, "output.bin").toPath();
+
+        // Justo antes, justo en y despues de los bloques de escritura del extract
+        new BMP(3000, 3000).writeBMP(coverFile.toString());
+        byte[] message = new byte[messageLength];
+        new Random(messageLength).nextBytes(message);
+        Files.write(messageFile, message);
+
+        Embed embed = new Embed();
+        embed.setInput(messageFile.toString());
+        embed.setCover(coverFile.toString());
+        embed.setOutput(hiddenFile.toString());
+        embed.setSteganographyMethod("LSB4");
+        embed.execute();
+
+        Extract extract = new Extract();
+        extract.setCover(hiddenFile.toString());
+        extract.setOutput(new File(tempDir, "output").getPath());
+        extract.setSteganographyMethod("LSB4");
+        extract.execute();
+
+        Assertions.assertEquals(-1, Files.mismatch(messageFile, outputFile));
+        assertNoPartialFiles();
+
+        // Los permisos son los de cualquier archivo nuevo (el umask), no 0600
+        if (Files.getFileStore(outputFile).supportsFileAttributeView("posix")) {
+            Path reference = Files.write(new File(tempDir, "reference").toPath(), new byte[0]);
+            Assertions.assertEquals(
+                    Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(outputFile));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"LSB1", "LSB4", "LSBI"})
+    public void appTestExtensionTooLong(String steganographyMethod) throws IOException {
+        Path hiddenFile = new File(tempDir, "hidden.bmp").toPath();
+
+        // filelength + file + una extension de 257 bytes (el maximo es 256) sin el 0
+        byte[] file = "hidden".getBytes();
+        ByteBuffer message = ByteBuffer.allocate(4 + file.length + 256 + 2);
+        message.putInt(file.length).put(file).put((byte) '.');
+        while (message.remaining() > 1) {
+            message.put((byte) 'x');
+        }
+        SteganographyMethod.valueOf(steganographyMethod)
+                .embed(message.array(), new BMP(COVER_FILE_PATH))
+                .writeBMP(hiddenFile.toString());
+
+        Extract extract = new Extract();
+        extract.setCover(hiddenFile.toString());
+        extract.setOutput(new File(tempDir, "output").getPath());
+        extract.setSteganographyMethod(steganographyMethod);
+        RuntimeException e = Assertions.assertThrows(RuntimeException.class, extract::execute);
+        Assertions.assertEquals("Invalid file extension", e.getMessage());
+
+        // No queda ni el archivo parcial ni una salida a medias
+        assertNoPartialFiles();
+        try (Stream<Path> files = Files.list(tempDir.toPath())) {
+            Assertions.assertTrue(files.noneMatch(path -> path.getFileName().toString().startsWith("output")));
+        }
+    }
+
+    private void assertNoPartialFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir.toPath())) {
+            Assertions.assertTrue(files.noneMatch(path -> path.toString().endsWith(".part")));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"LSB1", "LSB4", "LSBI"})
+    public void appTestTrailingZero(String steganographyMethod) throws IOException {
+        String messageFilePath = tempDir.getAbsolutePath() + "/message.bin";
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+
+        // Un archivo que termina en 0 no corta la extraccion antes de la extension
+        byte[] file = {'d', 'a', 't', 'a', 0, 1, 0, 0};
+        ByteBuffer message = ByteBuffer.allocate(4 + file.length + 5);
+        message.putInt(file.length).put(file).put(".bin\0".getBytes());
+        SteganographyMethod method = SteganographyMethod.valueOf(steganographyMethod);
+        Assertions.assertArrayEquals(
+                message.array(), method.extract(method.embed(message.array(), new BMP(COVER_FILE_PATH)), true));
+
+        // Y lo mismo de punta a punta
+        Files.write(new File(messageFilePath).toPath(), file);
+        Embed embed = new Embed();
+        embed.setInput(messageFilePath);
+        embed.setCover(COVER_FILE_PATH);
+        embed.setOutput(hiddenFilePath);
+        embed.setSteganographyMethod(steganographyMethod);
+        embed.execute();
+
+        Extract extract = new Extract();
+        extract.setCover(hiddenFilePath);
+        extract.setOutput(outputFilePath);
+        extract.setSteganographyMethod(steganographyMethod);
+        extract.execute();
+
+        Assertions.assertArrayEquals(file, Files.readAllBytes(new File(outputFilePath + ".bin").toPath()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SteganographyMethod.class)
+    public void appTestInputStreamAllocation(SteganographyMethod steganographyMethod) {
+        Assumptions.assumeTrue(
+                ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemoryEnabled());
+
+        BMP cover = new BMP(1000, 1000);
+        byte[] buffer = new byte[4096];
+
+        // La primera pasada carga clases, la que se mide es la segunda. Con el backend escalar:
+        // los vectores de la Vector API si alocan hasta que C2 los compila
+        SteganographyOptions scalar = new SteganographyOptions(SteganographyBackend.SCALAR);
+        long allocated = 0;
+        int hidden = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            SteganographyInputStream in = steganographyMethod.newInputStream(cover, scalar);
+            in.readInt();
+            in.read();
+            in.skip(1000);
+            int read;
+            hidden = 0;
+            while ((read = in.read(buffer)) > 0) {
+                hidden += read;
+            }
+            allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        }
+
+        // Sin un objeto por byte o por pixel: solo el stream, nada que crezca con el payload
+        Assertions.assertTrue(hidden > 100_000);
+        Assertions.assertTrue(allocated < 4096, "allocated " + allocated + " bytes");
+    }
+
+    private static Stream<Arguments> provideEmptyFileCombinations() {
+        return Stream.of("LSB1", "LSB4", "LSBI")
+                .flatMap(method -> Stream.of(
+                        Arguments.of(method, List.of()),
+                        Arguments.of(method, List.of("-pass", "password", "-a", "aes128", "-m", "cbc")),
+                        Arguments.of(method, List.of("-compress", "9"))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideEmptyFileCombinations")
+    public void appTestEmptyFile(String steganographyMethod, List<String> options) throws IOException {
+        String messageFilePath = tempDir.getAbsolutePath() + "/empty.txt";
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+        Files.write(new File(messageFilePath).toPath(), new byte[0]);
+
+        List<String> embed = new ArrayList<>(List.of(
+                "-embed", "-in", messageFilePath, "-p", COVER_FILE_PATH, "-out", hiddenFilePath,
+                "-steg", steganographyMethod));
+        embed.addAll(options);
+        Assertions.assertEquals(
+                0,
+                Configuration.run(
+                        embed.toArray(new String[0]), new PrintStream(new ByteArrayOutputStream()), System.err));
+
+        // Con el metodo y con -steg AUTO
+        List<String> crypto = options.contains("-pass") ? options : List.of();
+        for (String steg : List.of(steganographyMethod, "AUTO")) {
+            List<String> extract = new ArrayList<>(List.of(
+                    "-extract", "-p", hiddenFilePath, "-out", outputFilePath, "-steg", steg));
+            extract.addAll(crypto);
+            Assertions.assertEquals(
+                    0,
+                    Configuration.run(
+                            extract.toArray(new String[0]),
+                            new PrintStream(new ByteArrayOutputStream()),
+                            System.err));
+            Path output = new File(outputFilePath + ".txt").toPath();
+            Assertions.assertEquals(0, Files.size(output));
+            Files.delete(output);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SteganographyMethod.class)
+    public void appTestCapacity(SteganographyMethod steganographyMethod) throws IOException {
+
+        // La capacidad que sale del header es la que despues tiene el stream
+        BMPHeader header = BMPHeader.read(COVER_FILE_PATH);
+        int capacity = steganographyMethod.capacity(header);
+        Assertions.assertEquals(
+                steganographyMethod.newOutputStream(new BMP(COVER_FILE_PATH)).remaining(), capacity);
+
+        Preflight.check(header, steganographyMethod, capacity);
+        Assertions.assertThrows(
+                RuntimeException.class,
+                () -> Preflight.check(header, steganographyMethod, capacity + 1));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideParameterCombinations")
+    public void appTestAutoDetect(
+            String steganographyMethod,
+            CryptographyAlgorithm cryptographyAlgorithm,
+            CryptographyMode cryptographyMode)
+            throws IOException {
+
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+
+        Embed embed = new Embed();
+        embed.setInput(MESSAGE_FILE_PATH);
+        embed.setCover(COVER_FILE_PATH);
+        embed.setOutput(hiddenFilePath);
+        embed.setSteganographyMethod(steganographyMethod);
+        embed.setCryptography(new Cryptography(cryptographyAlgorithm, cryptographyMode, "password"));
+        embed.execute();
+
+        // Ni metodo, ni algoritmo, ni modo
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = Configuration.run(
+                new String[] {"-extract", "-p", hiddenFilePath, "-out", outputFilePath, "-steg", "AUTO", "-pass", "password"},
+                new PrintStream(output, true),
+                System.err);
+
+        Assertions.assertEquals(0, status);
+        Assertions.assertTrue(output.toString().contains(
+                "Detected " + steganographyMethod + " (" + cryptographyAlgorithm.name().toLowerCase()
+                        + "/" + cryptographyMode.name().toLowerCase() + ")"));
+        Assertions.assertEquals(
+                -1,
+                Files.mismatch(
+                        new File(MESSAGE_FILE_PATH).toPath(),
+                        new File(outputFilePath + ".java").toPath()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"LSB1", "LSB4", "LSBI"})
+    public void appTestAutoDetectNoCrypto(String steganographyMethod) throws IOException {
+
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+
+        Embed embed = new Embed();
+        embed.setInput(MESSAGE_FILE_PATH);
+        embed.setCover(COVER_FILE_PATH);
+        embed.setOutput(hiddenFilePath);
+        embed.setSteganographyMethod(steganographyMethod);
+        embed.execute();
+
+        Extract extract = new Extract();
+        extract.setCover(hiddenFilePath);
+        extract.setOutput(outputFilePath);
+        Assertions.assertEquals(
+                SteganographyMethod.valueOf(steganographyMethod), extract.detect(null, null, null).method());
+        extract.execute();
+
+        Assertions.assertEquals(
+                -1,
+                Files.mismatch(
+                        new File(MESSAGE_FILE_PATH).toPath(),
+                        new File(outputFilePath + ".java").toPath()));
+
+        // Un cover sin nada escondido
+        Extract clean = new Extract();
+        clean.setCover(COVER_FILE_PATH);
+        Assertions.assertThrows(RuntimeException.class, () -> clean.detect(null, null, null));
+        Assertions.assertThrows(
+                RuntimeException.class,
+                () -> clean.detect("password", List.of(CryptographyAlgorithm.values()), List.of(CryptographyMode.values())));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideParameterCombinations")
+    public void appTestPreflight(
+            String steganographyMethod,
+            CryptographyAlgorithm cryptographyAlgorithm,
+            CryptographyMode cryptographyMode)
+            throws IOException {
+
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+
+        Embed embed = new Embed();
+        embed.setInput(MESSAGE_FILE_PATH);
+        embed.setCover(COVER_FILE_PATH);
+        embed.setOutput(hiddenFilePath);
+        embed.setSteganographyMethod(steganographyMethod);
+        embed.setCryptography(new Cryptography(cryptographyAlgorithm, cryptographyMode, "password"));
+        embed.execute();
+
+        Extract extract = new Extract();
+        extract.setSteganographyMethod(steganographyMethod);
+        extract.preflight(hiddenFilePath, cryptographyAlgorithm, cryptographyMode);
+
+        // Sin nada escondido el length del header no es posible
+        Assertions.assertThrows(
+                RuntimeException.class,
+                () -> extract.preflight(COVER_FILE_PATH, cryptographyAlgorithm, cryptographyMode));
+        Assertions.assertThrows(
+                RuntimeException.class, () -> extract.preflight(COVER_FILE_PATH, null, null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"-embed", "-extract"})
+    public void appTestInvalidOptionsBeforePreflight(String operation) throws IOException {
+        String messageFilePath = tempDir.getAbsolutePath() + "/message.bin";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+        Files.write(new File(messageFilePath).toPath(), new byte[(int) new File(COVER_FILE_PATH).length()]);
+
+        // El preflight fallaria (no entra / no hay nada escondido), pero primero se validan las opciones
+        List<String> args = new ArrayList<>(List.of(
+                operation, "-p", COVER_FILE_PATH, "-out", outputFilePath, "-steg", "LSB4",
+                "-threads", "many", "-pass", "password"));
+        if (operation.equals("-embed")) {
+            args.addAll(List.of("-in", messageFilePath));
+        }
+
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Assertions.assertEquals(
+                1,
+                Configuration.run(
+                        args.toArray(new String[0]),
+                        new PrintStream(new ByteArrayOutputStream()),
+                        new PrintStream(errors, true)));
+        Assertions.assertEquals("Invalid steganography options", errors.toString().strip());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0", "-1", "40000"})
+    public void appTestThreadsOutOfRange(String threads) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        Assertions.assertEquals(
+                1,
+                Configuration.run(
+                        new String[] {"-embed", "-in", MESSAGE_FILE_PATH, "-p", COVER_FILE_PATH,
+                                "-out", tempDir.getAbsolutePath() + "/hidden.bmp", "-steg", "LSB1",
+                                "-threads", threads},
+                        new PrintStream(output, true),
+                        new PrintStream(errors, true)));
+        Assertions.assertTrue(errors.toString().startsWith(
+                "Threads must be between 1 and " + SteganographyOptions.MAX_THREADS));
+        Assertions.assertFalse(output.toString().contains("Embedding message"));
+    }
+
+    private static Stream<Arguments> providePixelFormatCombinations() {
+        return Stream.of("LSB1", "LSB4", "LSBI")
+                .flatMap(method -> Stream.of(
+                        Arguments.of(method, new PixelFormat(3, true)),
+                        Arguments.of(method, new PixelFormat(4, false)),
+                        Arguments.of(method, new PixelFormat(4, true))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("providePixelFormatCombinations")
+    public void appTestPixelFormat(String steganographyMethod, PixelFormat format) throws IOException {
+        String coverFilePath = tempDir.getAbsolutePath() + "/cover.bmp";
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+
+        // El cover de los tests en otro formato, con alpha aleatorio
+        BMP original = new BMP(COVER_FILE_PATH);
+        BMP cover = new BMP(original.getWidth(), original.getHeight(), format);
+        for (int y = 0; y < original.getHeight(); y++) {
+            cover.setRow(y, original.getRow(y));
+        }
+        if (format.bytesPerPixel() == 4) {
+            Random random = new Random(4);
+            ByteBuffer pixels = cover.pixels();
+            for (int i = PixelFormat.ALPHA_OFFSET; i < pixels.capacity(); i += 4) {
+                pixels.put(i, (byte) random.nextInt(256));
+            }
+        }
+        cover.writeBMP(coverFilePath);
+
+        Embed embed = new Embed();
+        embed.setInput(MESSAGE_FILE_PATH);
+        embed.setSteganographyMethod(steganographyMethod);
+        embed.preflight(coverFilePath, CryptographyAlgorithm.AES128, CryptographyMode.CBC);
+        embed.setCover(coverFilePath);
+        embed.setOutput(hiddenFilePath);
+        embed.setCryptography(new Cryptography(CryptographyAlgorithm.AES128, CryptographyMode.CBC, "password"));
+        embed.execute();
+
+        // Mismo header y el alpha sin tocar
+        BMP hidden = new BMP(hiddenFilePath);
+        Assertions.assertEquals(format, hidden.getPixelFormat());
+        Assertions.assertEquals(BMPHeader.read(coverFilePath), BMPHeader.read(hiddenFilePath));
+        if (format.bytesPerPixel() == 4) {
+            byte[] before = cover.getPixelData();
+            byte[] after = hidden.getPixelData();
+            for (int i = PixelFormat.ALPHA_OFFSET; i < before.length; i += 4) {
+                Assertions.assertEquals(before[i], after[i]);
+            }
+        }
+
+        Extract extract = new Extract();
+        extract.setSteganographyMethod(steganographyMethod);
+        extract.preflight(hiddenFilePath, CryptographyAlgorithm.AES128, CryptographyMode.CBC);
+        extract.setCover(hiddenFilePath);
+        extract.setOutput(outputFilePath);
+        extract.setCryptography(new Cryptography(CryptographyAlgorithm.AES128, CryptographyMode.CBC, "password"));
+        extract.execute();
+
+        Assertions.assertEquals(
+                -1,
+                Files.mismatch(
+                        new File(MESSAGE_FILE_PATH).toPath(), new File(outputFilePath + ".java").toPath()));
+    }
+
+    private static Stream<Arguments> provideDeltaWriteCombinations() {
+        return Stream.of("LSB1", "LSB4", "LSBI")
+                .flatMap(method -> Stream.of(
+                        Arguments.of(method, PixelFormat.BGR24),
+                        Arguments.of(method, PixelFormat.BGRA32)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideDeltaWriteCombinations")
+    public void appTestDeltaWrite(String steganographyMethod, PixelFormat format) throws IOException {
+        String coverFilePath = tempDir.getAbsolutePath() + "/cover.bmp";
+        String fullFilePath = tempDir.getAbsolutePath() + "/full.bmp";
+        String deltaFilePath = tempDir.getAbsolutePath() + "/delta.bmp";
+        String inPlaceFilePath = tempDir.getAbsolutePath() + "/inplace.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+
+        // Cover con ruido, para que el mensaje cambie bytes en todo el prefijo
+        BMP cover = new BMP(400, 300, format);
+        ByteBuffer pixels = cover.pixels();
+        Random random = new Random(22);
+        for (int i = 0; i < pixels.capacity(); i++) {
+            pixels.put(i, (byte) random.nextInt(256));
+        }
+        cover.writeBMP(coverFilePath);
+        Files.copy(new File(coverFilePath).toPath(), new File(inPlaceFilePath).toPath());
+
+        // La misma salida escrita entera, como copia parcheada y sobre el mismo archivo
+        for (String[] paths : new String[][] {
+                {coverFilePath, fullFilePath}, {coverFilePath, deltaFilePath}, {inPlaceFilePath, inPlaceFilePath}}) {
+            Embed embed = new Embed();
+            embed.setInput(MESSAGE_FILE_PATH);
+            embed.setCover(paths[0]);
+            embed.setOutput(paths[1]);
+            embed.setSteganographyMethod(steganographyMethod);
+            embed.setDeltaWrite(paths[1] != fullFilePath);
+            embed.execute();
+        }
+
+        byte[] full = Files.readAllBytes(new File(fullFilePath).toPath());
+        Assertions.assertArrayEquals(full, Files.readAllBytes(new File(deltaFilePath).toPath()));
+        Assertions.assertArrayEquals(full, Files.readAllBytes(new File(inPlaceFilePath).toPath()));
+
+        Extract extract = new Extract();
+        extract.setCover(deltaFilePath);
+        extract.setOutput(outputFilePath);
+        extract.setSteganographyMethod(steganographyMethod);
+        extract.execute();
+
+        Assertions.assertEquals(
+                -1,
+                Files.mismatch(
+                        new File(MESSAGE_FILE_PATH).toPath(), new File(outputFilePath + ".java").toPath()));
+    }
+
+    private static Stream<Arguments> provideCompressionCombinations() {
+        return Stream.of("LSB1", "LSB4", "LSBI")
+                .flatMap(method -> Stream.of("9", "fast")
+                        .flatMap(level -> Stream.of(
+                                Arguments.of(method, level, false),
+                                Arguments.of(method, level, true))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCompressionCombinations")
+    public void appTestCompression(String steganographyMethod, String level, boolean encrypted)
+            throws IOException {
+        String coverFilePath = tempDir.getAbsolutePath() + "/cover.bmp";
+        String messageFilePath = tempDir.getAbsolutePath() + "/numbers.csv";
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+
+        // Un mensaje que sin comprimir no entra con LSB1 ni LSBI
+        new BMP(300, 300).writeBMP(coverFilePath);
+        StringBuilder numbers = new StringBuilder();
+        for (int i = 0; numbers.length() < 40_000; i++) {
+            numbers.append(String.format("%05d,%d%n", i, i % 7));
+        }
+        Files.writeString(new File(messageFilePath).toPath(), numbers);
+
+        List<String> crypto = encrypted ? List.of("-pass", "password", "-a", "aes256", "-m", "ofb") : List.of();
+        List<String> embed = new ArrayList<>(List.of(
+                "-embed", "-in", messageFilePath, "-p", coverFilePath, "-out", hiddenFilePath,
+                "-steg", steganographyMethod, "-compress", level));
+        embed.addAll(crypto);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Assertions.assertEquals(
+                0, Configuration.run(embed.toArray(new String[0]), new PrintStream(output, true), System.err));
+        Assertions.assertTrue(output.toString().contains("Compressed "));
+
+        // Con el metodo y con -steg AUTO
+        for (String steg : List.of(steganographyMethod, "AUTO")) {
+            List<String> extract = new ArrayList<>(List.of(
+                    "-extract", "-p", hiddenFilePath, "-out", outputFilePath, "-steg", steg));
+            extract.addAll(crypto);
+            Assertions.assertEquals(
+                    0,
+                    Configuration.run(
+                            extract.toArray(new String[0]),
+                            new PrintStream(new ByteArrayOutputStream()),
+                            System.err));
+            Assertions.assertEquals(
+                    -1,
+                    Files.mismatch(
+                            new File(messageFilePath).toPath(), new File(outputFilePath + ".csv").toPath()));
+            Files.delete(new File(outputFilePath + ".csv").toPath());
+        }
+
+        // Sin comprimir no entra
+        if (!steganographyMethod.equals("LSB4")) {
+            embed.subList(embed.indexOf("-compress"), embed.indexOf("-compress") + 2).clear();
+            Assertions.assertEquals(
+                    1,
+                    Configuration.run(
+                            embed.toArray(new String[0]),
+                            new PrintStream(new ByteArrayOutputStream()),
+                            new PrintStream(new ByteArrayOutputStream())));
+        }
+    }
+
+    @Test
+    public void appTestJfrEvents() throws IOException {
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+        Path recordingPath = tempDir.toPath().resolve("stegobmp.jfr");
+
+        try (Recording recording = new Recording()) {
+            for (String event : List.of(
+                    "stegobmp.CoverLoad", "stegobmp.ImageWrite", "stegobmp.KeyDerivation",
+                    "stegobmp.Cipher", "stegobmp.Embed", "stegobmp.Extract")) {
+                recording.enable(event).withoutThreshold();
+            }
+            recording.start();
+
+            // Una password que no use nadie mas, para que no venga de KeyCache
+            Cryptography cryptography = new Cryptography(CryptographyAlgorithm.AES192, CryptographyMode.CFB, "jfr-events");
+
+            Embed embed = new Embed();
+            embed.setInput(MESSAGE_FILE_PATH);
+            embed.setCover(COVER_FILE_PATH);
+            embed.setOutput(hiddenFilePath);
+            embed.setSteganographyMethod("LSB4");
+            embed.setCryptography(cryptography);
+            embed.execute();
+
+            Extract extract = new Extract();
+            extract.setCover(hiddenFilePath);
+            extract.setOutput(outputFilePath);
+            extract.setSteganographyMethod("LSB4");
+            extract.setCryptography(cryptography);
+            extract.execute();
+
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingPath);
+        long messageLength = Files.size(new File(MESSAGE_FILE_PATH).toPath());
+
+        Assertions.assertEquals(2, count(events, "stegobmp.CoverLoad"));
+        Assertions.assertEquals(1, count(events, "stegobmp.KeyDerivation"));
+
+        RecordedEvent write = find(events, "stegobmp.ImageWrite");
+        Assertions.assertEquals(hiddenFilePath, write.getString("path"));
+        Assertions.assertEquals(Files.size(new File(hiddenFilePath).toPath()), write.getLong("bytes"));
+
+        RecordedEvent embedEvent = find(events, "stegobmp.Embed");
+        Assertions.assertEquals("LSB4", embedEvent.getString("method"));
+        Assertions.assertEquals("AES192", embedEvent.getString("algorithm"));
+        Assertions.assertEquals("CFB", embedEvent.getString("mode"));
+        Assertions.assertEquals(messageLength, embedEvent.getLong("inputBytes"));
+
+        // El descifrado lee lo mismo que escribio el cifrado
+        List<RecordedEvent> ciphers = events.stream()
+                .filter(event -> event.getEventType().getName().equals("stegobmp.Cipher"))
+                .toList();
+        Assertions.assertEquals(2, ciphers.size());
+        RecordedEvent encrypt = ciphers.stream().filter(e -> e.getString("operation").equals("encrypt")).findFirst().orElseThrow();
+        RecordedEvent decrypt = ciphers.stream().filter(e -> e.getString("operation").equals("decrypt")).findFirst().orElseThrow();
+        Assertions.assertEquals(encrypt.getLong("bytesOut"), decrypt.getLong("bytesIn"));
+        Assertions.assertEquals(embedEvent.getLong("hiddenBytes"), 4 + encrypt.getLong("bytesOut"));
+
+        RecordedEvent extractEvent = find(events, "stegobmp.Extract");
+        Assertions.assertEquals("LSB4", extractEvent.getString("method"));
+        Assertions.assertEquals(embedEvent.getLong("hiddenBytes"), extractEvent.getLong("hiddenBytes"));
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).count();
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"LSB1", "LSB4", "LSBI"})
+    public void appTestStats(String steganographyMethod) throws IOException {
+        String hiddenFilePath = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String outputFilePath = tempDir.getAbsolutePath() + "/output";
+        String statsFilePath = tempDir.getAbsolutePath() + "/stats.jsonl";
+        PrintStream discard = new PrintStream(new ByteArrayOutputStream());
+
+        Assertions.assertEquals(0, Configuration.run(
+                new String[] {"-embed", "-in", MESSAGE_FILE_PATH, "-p", COVER_FILE_PATH, "-out", hiddenFilePath,
+                        "-steg", steganographyMethod, "-pass", "password", "-stats", statsFilePath},
+                discard, System.err));
+        Assertions.assertEquals(0, Configuration.run(
+                new String[] {"-extract", "-p", hiddenFilePath, "-out", outputFilePath,
+                        "-steg", steganographyMethod, "-pass", "password", "-stats", statsFilePath},
+                discard, System.err));
+
+        // Un job que falla tambien deja su registro
+        Assertions.assertEquals(1, Configuration.run(
+                new String[] {"-extract", "-p", COVER_FILE_PATH, "-out", outputFilePath,
+                        "-steg", steganographyMethod, "-stats", statsFilePath},
+                discard, discard));
+
+        List<String> records = Files.readAllLines(new File(statsFilePath).toPath());
+        Assertions.assertEquals(3, records.size());
+
+        String embed = records.get(0);
+        Assertions.assertTrue(embed.startsWith("{\"operation\":\"embed\",\"status\":0,"));
+        Assertions.assertTrue(embed.contains("\"method\":\"" + steganographyMethod + "\""));
+        Assertions.assertTrue(embed.contains("\"inputBytes\":" + Files.size(new File(MESSAGE_FILE_PATH).toPath())));
+        for (String phase : List.of("parse", "loadCover", "readInput", "kdf", "compress", "encrypt", "embed", "write")) {
+            Assertions.assertTrue(embed.matches(".*\"phasesMs\":\\{[^}]*\"" + phase + "\":[0-9.]+.*"), phase);
+        }
+        Assertions.assertTrue(embed.matches(".*\"allocatedBytes\":[0-9]+}$"));
+
+        String extract = records.get(1);
+        Assertions.assertTrue(extract.startsWith("{\"operation\":\"extract\",\"status\":0,"));
+        for (String phase : List.of("parse", "loadCover", "kdf", "detect", "extract", "decrypt", "decompress", "write")) {
+            Assertions.assertTrue(extract.matches(".*\"phasesMs\":\\{[^}]*\"" + phase + "\":[0-9.]+.*"), phase);
+        }
+
+        // Lo que se escondio es lo que se leyo, y lo que se uso de la capacidad
+        Assertions.assertEquals(field(embed, "hiddenBytes"), field(extract, "hiddenBytes"));
+        Assertions.assertEquals(field(embed, "capacityBytes"), field(extract, "capacityBytes"));
+        Assertions.assertEquals(
+                Double.parseDouble(field(embed, "hiddenBytes")) / Double.parseDouble(field(embed, "capacityBytes")),
+                Double.parseDouble(field(embed, "capacityUtilization")),
+                0.001);
+
+        Assertions.assertTrue(records.get(2).startsWith("{\"operation\":\"extract\",\"status\":1,"));
+    }
+
+    private static String field(String json, String key) {
+        Matcher matcher = Pattern.compile("\"" + key + "\":([^,}]+)").matcher(json);
+        Assertions.assertTrue(matcher.find(), key);
+        return matcher.group(1);
+    }
 }
@@ -0,0 +1,98 @@
+package ar.edu.itba.cripto.batch;
+
+import ar.edu.itba.cripto.model.BMP;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class BatchTest {
+
+    private static final String COVER_FILE_PATH = "src/test/resources/cover.bmp";
+    private static final String MESSAGE_FILE_PATH = "src/test/resources/message.java";
+
+    @TempDir public File tempDir;
+
+    @Test
+    public void batchTest() throws IOException {
+        String dir = tempDir.getAbsolutePath();
+
+        // Los paths relativos son del directorio del manifest, no del de trabajo
+        Files.copy(Path.of(MESSAGE_FILE_PATH), Path.of(dir, "message.java"));
+        Files.copy(Path.of(COVER_FILE_PATH), Path.of(dir, "cover.bmp"));
+
+        // El tercer job falla, los demas tienen que terminar igual
+        Path embedManifest = Path.of(dir, "embed.txt");
+        Files.writeString(embedManifest, String.join("\n",
+                "# embed",
+                "-embed -in message.java -p cover.bmp -out \"" + dir + "/lsb1.bmp\" -steg LSB1",
+                "",
+                "-embed -in message.java -p missing.bmp -out missing.bmp -steg LSB1",
+                "-embed --input=message.java -p cover.bmp -out lsbi.bmp -steg LSBI -pass secret -stats -"));
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        int status = new Batch(embedManifest, 2).run(new PrintStream(report, true), System.err);
+
+        Assertions.assertEquals(1, status);
+        Assertions.assertTrue(report.toString().contains("Line 4: FAILED"));
+        Assertions.assertTrue(report.toString().contains("2 succeeded, 1 failed"));
+        // La salida del job va al reporte
+        Assertions.assertTrue(report.toString().contains("Line 5: OK"));
+        Assertions.assertTrue(report.toString().contains("{\"operation\":\"embed\",\"status\":0"));
+
+        Path extractManifest = Path.of(dir, "extract.txt");
+        Files.writeString(extractManifest, String.join("\n",
+                "-extract -p lsb1.bmp -out lsb1 -steg LSB1",
+                "-extract -p lsbi.bmp -out lsbi -steg LSBI -pass secret"));
+
+        status = new Batch(extractManifest, 2).run(new PrintStream(new ByteArrayOutputStream()), System.err);
+
+        Assertions.assertEquals(0, status);
+        for (String name : new String[] {"lsb1", "lsbi"}) {
+            Assertions.assertEquals(
+                    -1, Files.mismatch(Path.of(MESSAGE_FILE_PATH), Path.of(dir, name + ".java")));
+        }
+    }
+
+    @Test
+    public void estimatedMemoryTest() throws IOException {
+        String large = Path.of(tempDir.getAbsolutePath(), "large.bmp").toString();
+        new BMP(2000, 1500).writeBMP(large);
+        long largeSize = Files.size(Path.of(large));
+        long smallSize = Files.size(Path.of(COVER_FILE_PATH));
+
+        // Con -load auto (el default) un cover grande se mapea y no ocupa heap
+        Assertions.assertEquals(BatchJob.OVERHEAD, job("-extract", "-p", large).estimatedMemory());
+        Assertions.assertEquals(BatchJob.OVERHEAD, job("-extract", "-p", large, "-load", "auto").estimatedMemory());
+        Assertions.assertEquals(
+                smallSize + BatchJob.OVERHEAD, job("-extract", "-p", COVER_FILE_PATH).estimatedMemory());
+        Assertions.assertEquals(
+                largeSize + BatchJob.OVERHEAD, job("-extract", "-p", large, "-load", "heap").estimatedMemory());
+        Assertions.assertEquals(
+                BatchJob.OVERHEAD, job("-extract", "-p", COVER_FILE_PATH, "-load", "mmap").estimatedMemory());
+
+        // Sin permiso de escritura BMP lo carga en el heap
+        if (new File(large).setWritable(false) && !Files.isWritable(Path.of(large))) {
+            Assertions.assertEquals(
+                    largeSize + BatchJob.OVERHEAD, job("-extract", "-p", large, "-load", "mmap").estimatedMemory());
+        }
+    }
+
+    private static BatchJob job(String... args) {
+        return new BatchJob(1, args);
+    }
+
+    @Test
+    public void splitTest() {
+        Assertions.assertArrayEquals(
+                new String[] {"-in", "a b.txt", "-pass", ""},
+                Batch.split("  -in \"a b.txt\"\t-pass \"\" "));
+    }
+}
@@ -5,6 +5,12 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
 import java.util.stream.Stream;
 
 public class CryptographyTest {
@@ -35,4 +41,70 @@ public class CryptographyTest {
 
         Assertions.assertEquals(message, new String(decrypted));
     }
+
+    @ParameterizedTest
+    @MethodSource("provideCryptoCombinations")
+    public void testStreaming(CryptographyAlgorithm algorithm, CryptographyMode mode)
+            throws IOException {
+
+        Cryptography cryptography = new Cryptography(algorithm, mode, "password");
+
+        byte[] message = new byte[100017];
+        new Random(algorithm.ordinal() * 31 + mode.ordinal()).nextBytes(message);
+
+        // Chunks que no son multiplo del bloque
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        try (OutputStream out = cryptography.encrypt(encrypted)) {
+            for (int off = 0; off < message.length; off += 4093) {
+                out.write(message, off, Math.min(4093, message.length - off));
+            }
+        }
+
+        Assertions.assertArrayEquals(cryptography.encrypt(message), encrypted.toByteArray());
+        Assertions.assertEquals(
+                encrypted.size(), cryptography.getEncryptedLength(message.length));
+
+        // Lo que sigue al texto cifrado no se tiene que leer
+        ByteArrayOutputStream hidden = new ByteArrayOutputStream();
+        hidden.write(encrypted.toByteArray());
+        hidden.write(new byte[] {1, 2, 3});
+
+        InputStream in = new ByteArrayInputStream(hidden.toByteArray());
+        byte[] decrypted = cryptography.decrypt(in, encrypted.size()).readAllBytes();
+
+        Assertions.assertArrayEquals(message, decrypted);
+        Assertions.assertEquals(3, in.available());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCryptoCombinations")
+    public void testKeyCache(CryptographyAlgorithm algorithm, CryptographyMode mode) {
+
+        String password = "cache-" + algorithm + "-" + mode;
+        byte[] message = "Hello, World!".getBytes();
+
+        long misses = KeyCache.misses();
+        Cryptography derived = new Cryptography(algorithm, mode, password);
+        Assertions.assertEquals(misses + 1, KeyCache.misses());
+
+        long hits = KeyCache.hits();
+        Cryptography cached = new Cryptography(algorithm, mode, password);
+        Assertions.assertEquals(hits + 1, KeyCache.hits());
+
+        Assertions.assertArrayEquals(derived.encrypt(message), cached.encrypt(message));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCryptoCombinations")
+    public void testEncryptedLength(CryptographyAlgorithm algorithm, CryptographyMode mode) {
+
+        Cryptography cryptography = new Cryptography(algorithm, mode, "password");
+
+        // Sin derivar la clave tiene que dar lo mismo que el cipher
+        for (int length : new int[] {0, 1, 7, 8, 15, 16, 17, 2468, 100017}) {
+            Assertions.assertEquals(
+                    cryptography.getEncryptedLength(length),
+                    mode.getEncryptedLength(length, algorithm));
+        }
+    }
 }
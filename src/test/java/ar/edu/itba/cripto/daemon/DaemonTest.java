@@ -0,0 +1,158 @@
+package ar.edu.itba.cripto.daemon;
+
+import ar.edu.itba.cripto.Configuration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+public class DaemonTest {
+
+    private static final String COVER_FILE_PATH = "src/test/resources/cover.bmp";
+    private static final String MESSAGE_FILE_PATH = "src/test/resources/message.java";
+
+    @TempDir public File tempDir;
+
+    @Test
+    public void daemonTest() throws Exception {
+        String socket = tempDir.getAbsolutePath() + "/stegobmp.sock";
+        String hidden = tempDir.getAbsolutePath() + "/hidden.bmp";
+        String output = tempDir.getAbsolutePath() + "/output";
+
+        try (Daemon daemon = new Daemon(Path.of(socket))) {
+            Thread server = new Thread(() -> {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            server.start();
+
+            // El socket es solo del dueño y un segundo daemon no lo pisa
+            if (Files.getFileStore(tempDir.toPath()).supportsFileAttributeView("posix")) {
+                Assertions.assertEquals(
+                        PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(Path.of(socket)));
+            }
+            IOException running = Assertions.assertThrows(IOException.class, () -> new Daemon(Path.of(socket)));
+            Assertions.assertTrue(running.getMessage().contains("already running"));
+
+            // Paths relativos, los resuelve el cliente
+            Assertions.assertEquals(0, run("-client", socket, "-embed", "-in", MESSAGE_FILE_PATH,
+                    "-p", COVER_FILE_PATH, "-out", hidden, "-steg", "LSBI", "-pass", "secret"));
+            Assertions.assertEquals(0, run("-client", socket, "-extract",
+                    "-p", hidden, "-out", output, "-steg", "LSBI", "-pass", "secret"));
+            Assertions.assertEquals(1, run("-client", socket, "-extract",
+                    "-p", "missing.bmp", "-out", output, "-steg", "LSBI"));
+
+            Assertions.assertEquals(
+                    -1, Files.mismatch(Path.of(MESSAGE_FILE_PATH), Path.of(output + ".java")));
+
+            // Un daemon no arranca otro daemon ni se manda requests a si mismo, en ninguna forma
+            for (String[] nested : new String[][] {
+                    {"--daemon=" + tempDir.getAbsolutePath() + "/other.sock"},
+                    {"--client=" + socket, "-extract", "-p", hidden, "-out", output, "-steg", "LSBI"}}) {
+                ByteArrayOutputStream errors = new ByteArrayOutputStream();
+                Assertions.assertEquals(1, DaemonClient.send(
+                        Path.of(socket), nested, new PrintStream(new ByteArrayOutputStream()),
+                        new PrintStream(errors, true)));
+                Assertions.assertTrue(errors.toString().contains("Invalid daemon request"));
+            }
+            Assertions.assertFalse(Files.exists(Path.of(tempDir.getAbsolutePath(), "other.sock")));
+
+            DaemonStats stats = daemon.stats();
+            Assertions.assertEquals(0, stats.inFlight());
+            Assertions.assertEquals(2, stats.completed());
+            Assertions.assertEquals(1, stats.failed());
+
+            ByteArrayOutputStream status = new ByteArrayOutputStream();
+            Assertions.assertEquals(0, Configuration.run(
+                    new String[] {"-client", socket, "-status"}, new PrintStream(status, true), System.err));
+            Assertions.assertTrue(status.toString().contains("Completed: 2"));
+
+            // Los paths de un manifest son de su directorio, igual que sin daemon
+            Path jobs = Files.createDirectory(Path.of(tempDir.getAbsolutePath(), "jobs"));
+            Files.copy(Path.of(MESSAGE_FILE_PATH), jobs.resolve("message.java"));
+            Files.copy(Path.of(COVER_FILE_PATH), jobs.resolve("cover.bmp"));
+            Files.writeString(jobs.resolve("manifest.txt"),
+                    "-embed -in message.java -p cover.bmp -out hidden.bmp -steg LSB1\n");
+            Assertions.assertEquals(0, run("-client", socket, "-batch", jobs.resolve("manifest.txt").toString()));
+            Assertions.assertTrue(Files.exists(jobs.resolve("hidden.bmp")));
+
+            daemon.close();
+            server.join(10_000);
+            Assertions.assertFalse(server.isAlive());
+        }
+    }
+
+    @Test
+    public void maxRequestsTest() throws Exception {
+        String socket = tempDir.getAbsolutePath() + "/stegobmp.sock";
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Daemon(Path.of(socket), 0));
+
+        try (Daemon daemon = new Daemon(Path.of(socket), 1)) {
+            Thread server = new Thread(() -> {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            server.start();
+
+            // Llegan todos juntos y corren de a uno
+            Thread[] clients = new Thread[4];
+            int[] statuses = new int[clients.length];
+            for (int i = 0; i < clients.length; i++) {
+                int client = i;
+                clients[i] = new Thread(() -> statuses[client] = run("-client", socket, "-embed",
+                        "-in", MESSAGE_FILE_PATH, "-p", COVER_FILE_PATH,
+                        "-out", tempDir.getAbsolutePath() + "/hidden" + client + ".bmp", "-steg", "LSB1"));
+                clients[i].start();
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+
+            Assertions.assertArrayEquals(new int[clients.length], statuses);
+            DaemonStats stats = daemon.stats();
+            Assertions.assertEquals(clients.length, stats.completed());
+            Assertions.assertEquals(1, stats.maxInFlight());
+            Assertions.assertEquals(0, stats.waiting());
+
+            daemon.close();
+            server.join(10_000);
+        }
+    }
+
+    @Test
+    public void staleSocketTest() throws Exception {
+        Path socket = Path.of(tempDir.getAbsolutePath(), "stegobmp.sock");
+
+        // Un socket que quedo de un daemon que no llego a borrarlo
+        try (ServerSocketChannel stale = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            stale.bind(UnixDomainSocketAddress.of(socket));
+        }
+        Assertions.assertTrue(Files.exists(socket));
+
+        try (Daemon daemon = new Daemon(socket)) {
+            Assertions.assertTrue(Files.exists(socket));
+        }
+        Assertions.assertFalse(Files.exists(socket));
+    }
+
+    private static int run(String... args) {
+        return Configuration.run(args, new PrintStream(new ByteArrayOutputStream()), System.err);
+    }
+}
@@ -0,0 +1,281 @@
+package ar.edu.itba.cripto.model;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class BMPTest {
+
+    @TempDir public File tempDir;
+
+    private static final String COVER_FILE_PATH = "src/test/resources/cover.bmp";
+
+    private static Stream<Arguments> scaleParameters() {
+        // Anchos con y sin padding, y una imagen con mas de una franja
+        return Stream.of(1, 2, 3, 4, 7)
+                .flatMap(scale -> Stream.of(
+                        Arguments.of(1, 1, scale),
+                        Arguments.of(5, 3, scale),
+                        Arguments.of(6, 9, scale),
+                        Arguments.of(13, 4, scale),
+                        Arguments.of(301, 700, scale)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("scaleParameters")
+    public void scaleTest(int width, int height, int scale) {
+        BMP bmp = randomBMP(width, height);
+
+        Assertions.assertArrayEquals(
+                referenceScale(bmp, scale).getPixelData(), bmp.scale(scale).getPixelData());
+    }
+
+    @Test
+    public void scaleCoverTest() throws IOException {
+        BMP bmp = new BMP(COVER_FILE_PATH, PixelStorage.MMAP);
+        BMP scaled = bmp.scale(2);
+
+        Assertions.assertEquals(bmp.getWidth() * 2, scaled.getWidth());
+        Assertions.assertEquals(bmp.getHeight() * 2, scaled.getHeight());
+        Assertions.assertArrayEquals(referenceScale(bmp, 2).getPixelData(), scaled.getPixelData());
+    }
+
+    @ParameterizedTest
+    @EnumSource(PixelStorage.class)
+    public void readOnlyCoverTest(PixelStorage storage) throws IOException {
+        Path cover = Path.of(tempDir.getAbsolutePath(), "cover.bmp");
+        Files.copy(Path.of(COVER_FILE_PATH), cover);
+        Assumptions.assumeTrue(cover.toFile().setWritable(false) && !Files.isWritable(cover));
+
+        // Solo se abre en escritura para mapear; sin permiso de escritura va al heap
+        Assertions.assertArrayEquals(
+                new BMP(COVER_FILE_PATH, PixelStorage.HEAP).getPixelData(),
+                new BMP(cover.toString(), storage).getPixelData());
+    }
+
+    @Test
+    public void scaleInvalidTest() {
+        BMP bmp = new BMP(4, 4);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bmp.scale(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bmp.scale(1 << 16));
+    }
+
+    private static Stream<Arguments> regionParameters() {
+        return Stream.of(
+                Arguments.of(0, 0, 13, 7),
+                Arguments.of(0, 3, 13, 1),
+                Arguments.of(5, 2, 4, 3),
+                Arguments.of(12, 6, 1, 1),
+                Arguments.of(3, 4, 0, 2));
+    }
+
+    @ParameterizedTest
+    @MethodSource("regionParameters")
+    public void getRegionTest(int x, int y, int w, int h) {
+        BMP bmp = randomBMP(13, 7);
+
+        int[] region = bmp.getRegion(x, y, w, h);
+        ByteBuffer bytes = ByteBuffer.allocate(w * h * 3);
+        bmp.getRegion(x, y, w, h, bytes);
+        bytes.flip();
+
+        for (int j = 0; j < h; j++) {
+            for (int i = 0; i < w; i++) {
+                int rgb = bmp.getRGB(x + i, y + j);
+                Assertions.assertEquals(rgb, region[j * w + i]);
+                Assertions.assertEquals(rgb & 0xFF, bytes.get() & 0xFF);
+                Assertions.assertEquals((rgb >> 8) & 0xFF, bytes.get() & 0xFF);
+                Assertions.assertEquals(rgb >> 16, bytes.get() & 0xFF);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("regionParameters")
+    public void setRegionTest(int x, int y, int w, int h) {
+        BMP expected = randomBMP(13, 7);
+        BMP fromInts = randomBMP(13, 7);
+        BMP fromBytes = randomBMP(13, 7);
+
+        int[] region = new int[w * h];
+        for (int k = 0; k < region.length; k++) {
+            region[k] = (k * 0x9E3779B1) & 0xFFFFFF;
+        }
+        for (int j = 0; j < h; j++) {
+            for (int i = 0; i < w; i++) {
+                expected.setRGB(x + i, y + j, region[j * w + i]);
+            }
+        }
+
+        fromInts.setRegion(x, y, w, h, region);
+        ByteBuffer bytes = ByteBuffer.allocate(w * h * 3);
+        expected.getRegion(x, y, w, h, bytes);
+        fromBytes.setRegion(x, y, w, h, bytes.flip());
+
+        Assertions.assertArrayEquals(expected.getPixelData(), fromInts.getPixelData());
+        Assertions.assertArrayEquals(expected.getPixelData(), fromBytes.getPixelData());
+    }
+
+    @Test
+    public void rowsTest() {
+        BMP bmp = randomBMP(5, 3);
+
+        int y = 0;
+        for (ByteBuffer row : bmp.rows()) {
+            // Incluye el padding: 5 pixeles son 15 bytes + 1
+            Assertions.assertEquals(16, row.remaining());
+            int[] rgb = bmp.getRow(y);
+            for (int x = 0; x < 5; x++) {
+                int pixel = (row.get(x * 3 + 2) & 0xFF) << 16 | (row.get(x * 3 + 1) & 0xFF) << 8 | row.get(x * 3) & 0xFF;
+                Assertions.assertEquals(rgb[x], pixel);
+            }
+            y++;
+        }
+        Assertions.assertEquals(3, y);
+
+        // La vista escribe en la imagen
+        bmp.row(2).put(0, (byte) 0x12).put(1, (byte) 0x34).put(2, (byte) 0x56);
+        Assertions.assertEquals(0x563412, bmp.getRGB(0, 2));
+    }
+
+    @Test
+    public void regionOutOfBoundsTest() {
+        BMP bmp = new BMP(4, 4);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bmp.getRegion(2, 0, 3, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bmp.setRegion(0, -1, 1, 1, new int[1]));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> bmp.row(4));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> bmp.setRegion(0, 0, 2, 2, new int[3]));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void bgra32Test(boolean topDown) throws IOException {
+        int width = 5, height = 3;
+        byte[] pixels = new byte[width * height * 4];
+        new Random(5).nextBytes(pixels);
+        Path path = writeBMP(width, topDown ? -height : height, 32, BMPHeader.BI_BITFIELDS, 108, pixels);
+
+        BMP bmp = new BMP(path.toString());
+        Assertions.assertEquals(new PixelFormat(4, topDown), bmp.getPixelFormat());
+        Assertions.assertEquals(width, bmp.getWidth());
+        Assertions.assertEquals(height, bmp.getHeight());
+
+        for (int y = 0; y < height; y++) {
+            int row = topDown ? y : height - y - 1;
+            for (int x = 0; x < width; x++) {
+                int i = row * width * 4 + x * 4;
+                int expected = (pixels[i + 2] & 0xFF) << 16 | (pixels[i + 1] & 0xFF) << 8 | pixels[i] & 0xFF;
+                Assertions.assertEquals(expected, bmp.getRGB(x, y));
+            }
+        }
+
+        // setRGB y setRegion no tocan el alpha
+        bmp.setRGB(1, 1, 0x123456);
+        bmp.setRegion(0, 2, width, 1, new int[width]);
+        byte[] data = bmp.getPixelData();
+        for (int i = 3; i < data.length; i += 4) {
+            Assertions.assertEquals(pixels[i], data[i]);
+        }
+        Assertions.assertEquals(0x123456, bmp.getRGB(1, 1));
+
+        // Se escribe con el header original (mascaras y demas)
+        Path output = path.resolveSibling("output.bmp");
+        bmp.setPixelData(pixels);
+        bmp.writeBMP(output.toString());
+        Assertions.assertEquals(-1, Files.mismatch(path, output));
+    }
+
+    @Test
+    public void topDownScaleTest() throws IOException {
+        int width = 7, height = 4;
+        // 21 bytes de pixeles + 3 de padding por fila
+        byte[] pixels = new byte[24 * height];
+        new Random(7).nextBytes(pixels);
+        Path path = writeBMP(width, -height, 24, BMPHeader.BI_RGB, 40, pixels);
+
+        BMP bmp = new BMP(path.toString());
+        BMP scaled = bmp.scale(3);
+        Assertions.assertTrue(scaled.getPixelFormat().topDown());
+        Assertions.assertArrayEquals(referenceScale(bmp, 3).getRegion(0, 0, 21, 12), scaled.getRegion(0, 0, 21, 12));
+
+        // El header escalado sigue siendo top-down
+        Path output = path.resolveSibling("scaled.bmp");
+        scaled.writeBMP(output.toString());
+        BMPHeader header = BMPHeader.read(output.toString());
+        Assertions.assertEquals(new BMPHeader(21, 12, 54, new PixelFormat(3, true)), header);
+    }
+
+    @Test
+    public void unsupportedMasksTest() throws IOException {
+        Path path = writeBMP(2, 2, 32, BMPHeader.BI_BITFIELDS, 40, new byte[16]);
+        // R y B cambiados
+        byte[] file = Files.readAllBytes(path);
+        ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN).putInt(54, 0xFF).putInt(62, 0xFF0000);
+        Files.write(path, file);
+
+        IOException e = Assertions.assertThrows(IOException.class, () -> new BMP(path.toString()));
+        Assertions.assertEquals("Only BGRA channel masks are supported", e.getMessage());
+    }
+
+    // BMP de 24 o 32 bits con un info header de infoHeaderSize bytes (y mascaras BGRA si son BITFIELDS)
+    private Path writeBMP(int width, int height, int bitsPerPixel, int compression, int infoHeaderSize, byte[] pixels)
+            throws IOException {
+        int masks = compression == BMPHeader.BI_BITFIELDS && infoHeaderSize == 40 ? 12 : 0;
+        int dataOffset = 14 + infoHeaderSize + masks;
+        ByteBuffer file = ByteBuffer.allocate(dataOffset + pixels.length).order(ByteOrder.LITTLE_ENDIAN);
+        file.put((byte) 'B').put((byte) 'M').putInt(file.capacity()).putInt(0).putInt(dataOffset);
+        file.putInt(infoHeaderSize).putInt(width).putInt(height).putShort((short) 1);
+        file.putShort((short) bitsPerPixel).putInt(compression).putInt(pixels.length);
+        file.putInt(2835).putInt(2835).putInt(0).putInt(0);
+        if (compression == BMPHeader.BI_BITFIELDS) {
+            file.putInt(0x00FF0000).putInt(0x0000FF00).putInt(0x000000FF);
+            if (infoHeaderSize >= 56) {
+                file.putInt(0xFF000000);
+            }
+        }
+        file.position(dataOffset).put(pixels);
+
+        Path path = tempDir.toPath().resolve("image.bmp");
+        Files.write(path, file.array());
+        return path;
+    }
+
+    private static BMP randomBMP(int width, int height) {
+        BMP bmp = new BMP(width, height);
+        byte[] pixels = new byte[bmp.pixels().capacity()];
+        new Random(width * 31L + height).nextBytes(pixels);
+        bmp.setPixelData(pixels);
+        return bmp;
+    }
+
+    // La implementacion pixel a pixel original
+    private static BMP referenceScale(BMP source, int scale) {
+        BMP bmp = new BMP(source.getWidth() * scale, source.getHeight() * scale);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                int pixel = source.getRGB(x, y);
+                for (int yScaled = 0; yScaled < scale; yScaled++) {
+                    for (int xScaled = 0; xScaled < scale; xScaled++) {
+                        bmp.setRGB(x * scale + xScaled, y * scale + yScaled, pixel);
+                    }
+                }
+            }
+        }
+        return bmp;
+    }
+}
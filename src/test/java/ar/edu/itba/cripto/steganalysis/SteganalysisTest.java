@@ -0,0 +1,92 @@
+package ar.edu.itba.cripto.steganalysis;
+
+import ar.edu.itba.cripto.model.BMP;
+import ar.edu.itba.cripto.steganography.SteganographyMethod;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class SteganalysisTest {
+
+    private static final String COVER_FILE_PATH = "src/test/resources/cover.bmp";
+
+    @TempDir public File tempDir;
+
+    @Test
+    public void cleanCoverTest() throws IOException {
+        SteganalysisReport report = Steganalysis.analyze(new BMP(COVER_FILE_PATH));
+
+        Assertions.assertTrue(report.chiSquareMax() < 0.5);
+        Assertions.assertEquals(0, report.chiSquarePrefix());
+        Assertions.assertTrue(report.rs() < 0.05);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SteganographyMethod.class)
+    public void fullCapacityTest(SteganographyMethod method) throws IOException {
+        BMP image = embed(method, 1.0);
+        SteganalysisReport report = Steganalysis.analyze(image);
+
+        Assertions.assertTrue(report.chiSquareMax() > 0.95);
+        Assertions.assertEquals(1, report.chiSquarePrefix());
+    }
+
+    @Test
+    public void partialPayloadTest() throws IOException {
+        BMP image = embed(SteganographyMethod.LSB1, 0.5);
+        SteganalysisReport report = Steganalysis.analyze(image);
+
+        // Los metodos escriben en orden, el chi-square tiene que ver hasta donde llega
+        Assertions.assertEquals(0.5, report.chiSquarePrefix(), 1.0 / 32);
+        Assertions.assertTrue(report.rs() > 0.2);
+    }
+
+    @Test
+    public void tilesMatchSequentialTest() throws IOException {
+        BMP image = embed(SteganographyMethod.LSBI, 0.3);
+
+        SteganalysisReport parallel = Steganalysis.analyze(image, ForkJoinPool.commonPool());
+        SteganalysisReport sequential = Steganalysis.analyze(image, new ForkJoinPool(1));
+
+        Assertions.assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    @Test
+    public void analyzerTest() throws IOException {
+        Path dir = tempDir.toPath();
+        embed(SteganographyMethod.LSB1, 1.0).writeBMP(dir.resolve("hidden.bmp").toString());
+        Files.copy(Path.of(COVER_FILE_PATH), dir.resolve("cover.BMP"));
+        Files.writeString(dir.resolve("broken.bmp"), "not a bmp");
+        Files.writeString(dir.resolve("notes.txt"), "ignored");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = new Analyzer(dir, 2).run(new PrintStream(output, true), System.err);
+        String report = output.toString();
+
+        Assertions.assertEquals(1, status);
+        Assertions.assertTrue(report.contains("broken.bmp: error"));
+        Assertions.assertTrue(report.contains("hidden.bmp: chi-square p=1.0000"));
+        Assertions.assertTrue(report.contains("cover.BMP: chi-square"));
+        Assertions.assertFalse(report.contains("notes.txt"));
+        Assertions.assertTrue(report.contains("Analyzed 3 files (1 failed)"));
+    }
+
+    private static BMP embed(SteganographyMethod method, double fraction) throws IOException {
+        BMP image = new BMP(COVER_FILE_PATH);
+        byte[] message = new byte[(int) (method.newOutputStream(image).remaining() * fraction)];
+        new Random(1).nextBytes(message);
+        return method.embed(message, image);
+    }
+}
@@ -0,0 +1,214 @@
+package ar.edu.itba.cripto.steganography;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Los kernels tienen que dar exactamente lo mismo que la implementacion de referencia
+public class LsbKernelTest {
+
+    private static final int PIXEL_BYTES = 4099;
+
+    private static Stream<Arguments> provideBackendBitsCombinations() {
+        return Stream.of(SteganographyBackend.SCALAR, SteganographyBackend.VECTOR)
+                .flatMap(backend -> Stream.of(1, 4).map(bits -> Arguments.of(backend, bits)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBackendBitsCombinations")
+    public void embedMatchesGeneric(SteganographyBackend backend, int bitsPerByte) {
+        LsbKernel kernel = kernel(backend);
+        Random random = new Random(bitsPerByte);
+        int bytesPerHiddenByte = 8 / bitsPerByte;
+
+        for (int run = 0; run < 200; run++) {
+            byte[] cover = randomBytes(random, PIXEL_BYTES);
+            byte[] message = randomBytes(random, random.nextInt(300) + 1);
+            int off = random.nextInt(message.length);
+            int len = random.nextInt(message.length - off + 1);
+            int maxHiddenIndex = PIXEL_BYTES / bytesPerHiddenByte - len;
+            int pixelIndex = random.nextInt(maxHiddenIndex + 1) * bytesPerHiddenByte;
+
+            ByteBuffer expected = ByteBuffer.wrap(cover.clone());
+            ScalarLsbKernel.embedGeneric(expected, pixelIndex, message, off, len, bitsPerByte);
+
+            ByteBuffer actual = ByteBuffer.allocateDirect(PIXEL_BYTES).put(cover).clear();
+            kernel.embed(actual, pixelIndex, message, off, len, bitsPerByte);
+
+            Assertions.assertEquals(expected, actual);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBackendBitsCombinations")
+    public void extractMatchesGeneric(SteganographyBackend backend, int bitsPerByte) {
+        LsbKernel kernel = kernel(backend);
+        Random random = new Random(bitsPerByte);
+        int bytesPerHiddenByte = 8 / bitsPerByte;
+
+        for (int run = 0; run < 200; run++) {
+            ByteBuffer pixels = ByteBuffer.wrap(randomBytes(random, PIXEL_BYTES));
+            int len = random.nextInt(300);
+            int maxHiddenIndex = PIXEL_BYTES / bytesPerHiddenByte - len;
+            int pixelIndex = random.nextInt(maxHiddenIndex + 1) * bytesPerHiddenByte;
+
+            byte[] expected = new byte[len + 3];
+            ScalarLsbKernel.extractGeneric(pixels, pixelIndex, expected, 3, len, bitsPerByte);
+
+            byte[] actual = new byte[len + 3];
+            kernel.extract(pixels, pixelIndex, actual, 3, len, bitsPerByte);
+
+            Assertions.assertArrayEquals(expected, actual);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = SteganographyBackend.class, names = {"SCALAR", "VECTOR"})
+    public void invertMatchesReference(SteganographyBackend backend) {
+        LsbKernel kernel = kernel(backend);
+        Random random = new Random(3);
+
+        for (int run = 0; run < 200; run++) {
+            byte[] cover = randomBytes(random, PIXEL_BYTES);
+            int from = random.nextInt(PIXEL_BYTES);
+            int to = from + random.nextInt(PIXEL_BYTES - from + 1);
+            int invertedPatterns = random.nextInt(16);
+
+            byte[] expected = cover.clone();
+            for (int i = from; i < to; i++) {
+                int pattern = (expected[i] & 0x6) >> 1;
+                if (i % 3 != 2 && ((invertedPatterns >> pattern) & 1) == 1) {
+                    expected[i] ^= 0x1;
+                }
+            }
+
+            ByteBuffer actual = ByteBuffer.wrap(cover);
+            kernel.invert(actual, from, to, invertedPatterns);
+
+            Assertions.assertArrayEquals(expected, actual.array());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBackendBitsCombinations")
+    public void parallelMatchesSequential(SteganographyBackend backend, int bitsPerByte) {
+        LsbKernel kernel = kernel(backend);
+        LsbKernel parallel = new ParallelLsbKernel(kernel, 4);
+        Random random = new Random(bitsPerByte);
+
+        // Suficiente para que se reparta en varias franjas, con un resto desalineado
+        byte[] message = randomBytes(random, 5 * ParallelLsbKernel.STRIPE_THRESHOLD + 13);
+        byte[] cover = randomBytes(random, message.length * (8 / bitsPerByte) + 7);
+
+        ByteBuffer expected = ByteBuffer.wrap(cover.clone());
+        kernel.embed(expected, 0, message, 0, message.length, bitsPerByte);
+        kernel.invert(expected, 0, cover.length, 0b0101);
+
+        ByteBuffer actual = ByteBuffer.wrap(cover.clone());
+        parallel.embed(actual, 0, message, 0, message.length, bitsPerByte);
+        parallel.invert(actual, 0, cover.length, 0b0101);
+
+        Assertions.assertEquals(expected, actual);
+
+        byte[] reference = new byte[message.length];
+        kernel.extract(expected, 0, reference, 0, message.length, bitsPerByte);
+        byte[] extracted = new byte[message.length];
+        parallel.extract(expected, 0, extracted, 0, message.length, bitsPerByte);
+
+        Assertions.assertArrayEquals(reference, extracted);
+    }
+
+    // 32 bits: lo mismo que la referencia sobre los bytes de color, sin tocar el alpha
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    public void bgra32MatchesGeneric(int bitsPerByte) {
+        Random random = new Random(32 + bitsPerByte);
+        int bytesPerHiddenByte = 8 / bitsPerByte;
+        int colors = PIXEL_BYTES / 4 * 3;
+
+        for (int run = 0; run < 200; run++) {
+            byte[] cover = randomBytes(random, PIXEL_BYTES / 4 * 4);
+            byte[] message = randomBytes(random, random.nextInt(300) + 1);
+            int off = random.nextInt(message.length);
+            int len = random.nextInt(message.length - off + 1);
+            int color = random.nextInt(colors / bytesPerHiddenByte - len + 1) * bytesPerHiddenByte;
+
+            ByteBuffer packed = ByteBuffer.wrap(colorBytes(cover));
+            ScalarLsbKernel.embedGeneric(packed, color, message, off, len, bitsPerByte);
+            byte[] expected = withColorBytes(cover, packed.array());
+
+            ByteBuffer actual = ByteBuffer.wrap(cover.clone());
+            Bgra32LsbKernel.INSTANCE.embed(actual, color, message, off, len, bitsPerByte);
+            Assertions.assertArrayEquals(expected, actual.array());
+
+            byte[] extracted = new byte[len];
+            Bgra32LsbKernel.INSTANCE.extract(actual, color, extracted, 0, len, bitsPerByte);
+            Assertions.assertArrayEquals(Arrays.copyOfRange(message, off, off + len), extracted);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    public void bgra32InvertMatchesReference(int threads) {
+        LsbKernel kernel = threads == 1
+                ? Bgra32LsbKernel.INSTANCE
+                : new ParallelLsbKernel(Bgra32LsbKernel.INSTANCE, threads);
+        Random random = new Random(33);
+        int colors = PIXEL_BYTES / 4 * 3;
+
+        for (int run = 0; run < 200; run++) {
+            byte[] cover = randomBytes(random, PIXEL_BYTES / 4 * 4);
+            int from = random.nextInt(colors);
+            int to = from + random.nextInt(colors - from + 1);
+            int invertedPatterns = random.nextInt(16);
+
+            ByteBuffer packed = ByteBuffer.wrap(colorBytes(cover));
+            ScalarLsbKernel.INSTANCE.invert(packed, from, to, invertedPatterns);
+            byte[] expected = withColorBytes(cover, packed.array());
+
+            ByteBuffer actual = ByteBuffer.wrap(cover.clone());
+            kernel.invert(actual, from, to, invertedPatterns);
+
+            Assertions.assertArrayEquals(expected, actual.array());
+        }
+    }
+
+    // B, G, R de cada pixel de 4 bytes
+    private static byte[] colorBytes(byte[] bgra) {
+        byte[] colors = new byte[bgra.length / 4 * 3];
+        for (int p = 0; p < bgra.length / 4; p++) {
+            System.arraycopy(bgra, p * 4, colors, p * 3, 3);
+        }
+        return colors;
+    }
+
+    private static byte[] withColorBytes(byte[] bgra, byte[] colors) {
+        byte[] result = bgra.clone();
+        for (int p = 0; p < bgra.length / 4; p++) {
+            System.arraycopy(colors, p * 3, result, p * 4, 3);
+        }
+        return result;
+    }
+
+    private static LsbKernel kernel(SteganographyBackend backend) {
+        if (backend == SteganographyBackend.VECTOR) {
+            Assumptions.assumeTrue(SteganographyBackend.isVectorAvailable());
+        }
+        return backend.kernel();
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,194 @@
+package ar.edu.itba.cripto.steganography;
+
+import ar.edu.itba.cripto.model.BMP;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+// LSBI en una pasada tiene que dar exactamente lo mismo que la implementacion original,
+// que invertia con una pasada por patron
+public class LsbiTest {
+
+    private static final byte[] PATTERNS = {0x0, 0x2, 0x4, 0x6};
+
+    // Como se eligen los bits del mensaje respecto de los LSB del cover
+    enum Message { RANDOM, ALL_FLIPPED, NONE_FLIPPED }
+
+    private static Stream<Arguments> provideEmbedCombinations() {
+        return Stream.of(new int[] {5, 3}, new int[] {64, 48}, new int[] {301, 97})
+                .flatMap(size -> Stream.of(Message.values())
+                        .flatMap(message -> Stream.of(1L, 2L, 3L)
+                                .map(seed -> Arguments.of(size[0], size[1], message, seed))));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideEmbedCombinations")
+    public void embedMatchesFourPassReference(int width, int height, Message kind, long seed) {
+        Random random = new Random(seed);
+        BMP cover = randomBMP(width, height, random);
+        int capacity = SteganographyMethod.LSBI.capacity(cover.pixels().capacity());
+        byte[] message = message(cover.getPixelData(), 1 + random.nextInt(capacity), kind, random);
+
+        byte[] expected = referenceEmbed(message, cover.getPixelData());
+        byte[] actual = SteganographyMethod.LSBI.embed(message, cover).getPixelData();
+        Assertions.assertArrayEquals(expected, actual);
+
+        // Los bits de los patrones: todos invertidos, ninguno, o lo que decida la referencia
+        int patterns = patternBits(actual);
+        if (kind == Message.ALL_FLIPPED) {
+            Assertions.assertEquals(0b1111, patterns);
+        } else if (kind == Message.NONE_FLIPPED) {
+            Assertions.assertEquals(0b0000, patterns);
+        }
+        Assertions.assertEquals(patternBits(expected), patterns);
+
+        byte[] extracted = new byte[message.length];
+        SteganographyMethod.LSBI.newInputStream(cover).readFully(extracted, 0, extracted.length);
+        Assertions.assertArrayEquals(message, extracted);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCapacitySizes")
+    public void capacityIsExact(int width, int height) {
+        Random random = new Random(width * 31L + height);
+        BMP cover = randomBMP(width, height, random);
+        int colorBytes = cover.pixels().capacity();
+
+        // Bytes de color que no son rojo ni patron, contados uno por uno
+        int usable = 0;
+        for (int i = 4; i < colorBytes; i++) {
+            if (i % 3 != 2) {
+                usable++;
+            }
+        }
+        int capacity = SteganographyMethod.LSBI.capacity(colorBytes);
+        Assertions.assertEquals(usable / 8, capacity);
+
+        // Justo en la capacidad entra y se recupera
+        byte[] message = new byte[capacity];
+        random.nextBytes(message);
+        SteganographyMethod.LSBI.embed(message, cover);
+        byte[] extracted = new byte[capacity];
+        SteganographyMethod.LSBI.newInputStream(cover).readFully(extracted, 0, capacity);
+        Assertions.assertArrayEquals(message, extracted);
+
+        // Un byte mas no, y no se toca la imagen
+        byte[] before = cover.getPixelData();
+        Assertions.assertThrows(
+                RuntimeException.class, () -> SteganographyMethod.LSBI.embed(new byte[capacity + 1], cover));
+        Assertions.assertArrayEquals(before, cover.getPixelData());
+    }
+
+    private static Stream<Arguments> provideCapacitySizes() {
+        // Con y sin padding, y largos de pixel data que dejan bits sueltos
+        return Stream.of(
+                Arguments.of(1, 1),
+                Arguments.of(2, 1),
+                Arguments.of(3, 2),
+                Arguments.of(5, 3),
+                Arguments.of(11, 7),
+                Arguments.of(64, 48),
+                Arguments.of(301, 97));
+    }
+
+    private static BMP randomBMP(int width, int height, Random random) {
+        BMP bmp = new BMP(width, height);
+        byte[] pixels = new byte[bmp.pixels().capacity()];
+        random.nextBytes(pixels);
+        bmp.setPixelData(pixels);
+        return bmp;
+    }
+
+    private static byte[] message(byte[] cover, int length, Message kind, Random random) {
+        byte[] message = new byte[length];
+        if (kind == Message.RANDOM) {
+            random.nextBytes(message);
+            return message;
+        }
+
+        // Bit a bit contra el LSB del byte de color donde va a quedar
+        int bit = 0;
+        for (int i = 4; bit < length * 8; i++) {
+            if (i % 3 == 2) {
+                continue;
+            }
+            int lsb = cover[i] & 1;
+            int value = kind == Message.ALL_FLIPPED ? lsb ^ 1 : lsb;
+            message[bit / 8] |= (byte) (value << (7 - bit % 8));
+            bit++;
+        }
+        return message;
+    }
+
+    private static int patternBits(byte[] pixels) {
+        int bits = 0;
+        for (int p = 0; p < 4; p++) {
+            bits |= (pixels[p] & 1) << p;
+        }
+        return bits;
+    }
+
+    // La implementacion original: embebe contando patrones y despues una pasada por patron
+    // que haya que invertir
+    private static byte[] referenceEmbed(byte[] message, byte[] pixelData) {
+        long[] appearances = new long[4];
+        long[] inversions = new long[4];
+
+        int messageIndex = 0;
+        int bitIndex = 0;
+        int i;
+        for (i = 4; i < pixelData.length; i++) {
+            if (i % 3 == 2) {
+                continue;
+            }
+            if (bitIndex == 8) {
+                bitIndex = 0;
+                messageIndex++;
+            }
+            if (messageIndex == message.length) {
+                break;
+            }
+
+            int bitToEmbed = (message[messageIndex] >> (7 - bitIndex)) & 1;
+            byte imageByte = pixelData[i];
+            int pattern = (imageByte & 0x6) >> 1;
+            appearances[pattern]++;
+
+            byte modifiedImageByte = (byte) ((imageByte & 0xFE) | bitToEmbed);
+            pixelData[i] = modifiedImageByte;
+            if (imageByte != modifiedImageByte) {
+                inversions[pattern]++;
+            }
+            bitIndex++;
+        }
+        int lastByte = i;
+
+        byte[] patternBytes = new byte[4];
+        for (int j = 0; j < PATTERNS.length; j++) {
+            if (appearances[j] == 0) {
+                continue;
+            }
+            if (inversions[j] > appearances[j] / 2) {
+                for (int k = 0; k < lastByte; k++) {
+                    if (k % 3 == 2) {
+                        continue;
+                    }
+                    if ((pixelData[k] & 0x6) == PATTERNS[j]) {
+                        pixelData[k] = (byte) (pixelData[k] ^ 0x1);
+                    }
+                }
+                patternBytes[j] = 0x1;
+            }
+        }
+
+        for (int j = 0; j < 4; j++) {
+            pixelData[j] = (byte) ((pixelData[j] & 0xFE) | patternBytes[j]);
+        }
+        return pixelData;
+    }
+}
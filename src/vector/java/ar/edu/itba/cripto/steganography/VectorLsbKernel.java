@@ -0,0 +1,208 @@
+package ar.edu.itba.cripto.steganography;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Kernels de LSB1 / LSB4 / LSBI sobre la Vector API (jdk.incubator.vector).
+// Solo se compila con -Pvector y se carga si el modulo esta presente, ver SteganographyBackend.
+// Lo que no llena un vector completo lo resuelve el kernel escalar.
+final class VectorLsbKernel implements LsbKernel {
+
+    static final VectorLsbKernel INSTANCE = new VectorLsbKernel();
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // Junta el bit 0 de cada byte de la palabra en el byte alto: el byte 0 queda como bit 7
+    private static final long LSB1_GATHER = 0x8040201008040201L;
+
+    // LSB1: un vector de mensaje alcanza para 8 vectores de imagen.
+    // El lane j del vector k toma el byte k * LANES / 8 + j / 8 del mensaje, bit 7 - j % 8
+    private static final VectorShuffle<Byte>[] LSB1_SHUFFLES = shuffles(8);
+    private static final ByteVector LSB1_SHIFTS =
+            ByteVector.fromArray(SPECIES, lanes(j -> 7 - j % 8), 0);
+
+    // LSB4: un vector de mensaje alcanza para 2 vectores de imagen.
+    // El lane j del vector k toma el byte k * LANES / 2 + j / 2, nibble alto si j es par
+    private static final VectorShuffle<Byte>[] LSB4_SHUFFLES = shuffles(2);
+    private static final ByteVector LSB4_SHIFTS =
+            ByteVector.fromArray(SPECIES, lanes(j -> j % 2 == 0 ? 4 : 0), 0);
+
+    // LSBI: 1 en los lanes que no son rojos, segun la fase (from % 3) del primer lane
+    private static final ByteVector[] NOT_RED = new ByteVector[3];
+
+    static {
+        for (int phase = 0; phase < 3; phase++) {
+            int start = phase;
+            NOT_RED[phase] =
+                    ByteVector.fromArray(SPECIES, lanes(j -> (start + j) % 3 == 2 ? 0 : 1), 0);
+        }
+    }
+
+    private VectorLsbKernel() {}
+
+    @Override
+    public void embed(
+            ByteBuffer pixels, int pixelIndex, byte[] src, int off, int len, int bitsPerByte) {
+        int done =
+                switch (bitsPerByte) {
+                    case 1 -> embed1(pixels, pixelIndex, src, off, len);
+                    case 4 -> embed4(pixels, pixelIndex, src, off, len);
+                    default -> 0;
+                };
+        ScalarLsbKernel.INSTANCE.embed(
+                pixels,
+                pixelIndex + done * (8 / bitsPerByte),
+                src,
+                off + done,
+                len - done,
+                bitsPerByte);
+    }
+
+    @Override
+    public void extract(
+            ByteBuffer pixels, int pixelIndex, byte[] dst, int off, int len, int bitsPerByte) {
+        int done =
+                switch (bitsPerByte) {
+                    case 1 -> extract1(pixels, pixelIndex, dst, off, len);
+                    case 4 -> extract4(pixels, pixelIndex, dst, off, len);
+                    default -> 0;
+                };
+        ScalarLsbKernel.INSTANCE.extract(
+                pixels,
+                pixelIndex + done * (8 / bitsPerByte),
+                dst,
+                off + done,
+                len - done,
+                bitsPerByte);
+    }
+
+    @Override
+    public void invert(ByteBuffer pixels, int from, int to, int invertedPatterns) {
+        ByteVector patterns = ByteVector.broadcast(SPECIES, (byte) invertedPatterns);
+
+        int i = from;
+        int phase = from % 3;
+        for (; i + LANES <= to; i += LANES) {
+            ByteVector pixel = ByteVector.fromByteBuffer(SPECIES, pixels, i, ORDER);
+
+            // bit del patron de cada byte, solo en los lanes que no son rojos
+            ByteVector pattern = pixel.lanewise(VectorOperators.LSHR, 1).and((byte) 0x3);
+            ByteVector inverted =
+                    patterns.lanewise(VectorOperators.LSHR, pattern).and(NOT_RED[phase]);
+
+            pixel.lanewise(VectorOperators.XOR, inverted).intoByteBuffer(pixels, i, ORDER);
+            phase = (phase + LANES) % 3;
+        }
+        ScalarLsbKernel.INSTANCE.invert(pixels, i, to, invertedPatterns);
+    }
+
+    // Devuelven cuantos bytes del mensaje procesaron, siempre multiplo de LANES
+    private static int embed1(ByteBuffer pixels, int pixelIndex, byte[] src, int off, int len) {
+        int done = 0;
+        for (; done + LANES <= len; done += LANES) {
+            ByteVector message = ByteVector.fromArray(SPECIES, src, off + done);
+            for (int k = 0; k < 8; k++, pixelIndex += LANES) {
+                ByteVector bits =
+                        message.rearrange(LSB1_SHUFFLES[k])
+                                .lanewise(VectorOperators.LSHR, LSB1_SHIFTS)
+                                .and((byte) 0x1);
+                ByteVector.fromByteBuffer(SPECIES, pixels, pixelIndex, ORDER)
+                        .and((byte) 0xFE)
+                        .or(bits)
+                        .intoByteBuffer(pixels, pixelIndex, ORDER);
+            }
+        }
+        return done;
+    }
+
+    private static int embed4(ByteBuffer pixels, int pixelIndex, byte[] src, int off, int len) {
+        int done = 0;
+        for (; done + LANES <= len; done += LANES) {
+            ByteVector message = ByteVector.fromArray(SPECIES, src, off + done);
+            for (int k = 0; k < 2; k++, pixelIndex += LANES) {
+                ByteVector bits =
+                        message.rearrange(LSB4_SHUFFLES[k])
+                                .lanewise(VectorOperators.LSHR, LSB4_SHIFTS)
+                                .and((byte) 0xF);
+                ByteVector.fromByteBuffer(SPECIES, pixels, pixelIndex, ORDER)
+                        .and((byte) 0xF0)
+                        .or(bits)
+                        .intoByteBuffer(pixels, pixelIndex, ORDER);
+            }
+        }
+        return done;
+    }
+
+    private static int extract1(ByteBuffer pixels, int pixelIndex, byte[] dst, int off, int len) {
+        int done = 0;
+        for (; done + LANES <= len; done += LANES) {
+            ByteVector message = ByteVector.zero(SPECIES);
+            for (int k = 0; k < 8; k++, pixelIndex += LANES) {
+                // Cada long junta los 8 bits de un byte del mensaje
+                LongVector bytes =
+                        (LongVector)
+                                ByteVector.fromByteBuffer(SPECIES, pixels, pixelIndex, ORDER)
+                                        .and((byte) 0x1)
+                                        .reinterpretAsLongs()
+                                        .lanewise(VectorOperators.MUL, LSB1_GATHER)
+                                        .lanewise(VectorOperators.LSHR, 56);
+                message =
+                        message.or(
+                                (ByteVector) bytes.convertShape(VectorOperators.L2B, SPECIES, -k));
+            }
+            message.intoArray(dst, off + done);
+        }
+        return done;
+    }
+
+    private static int extract4(ByteBuffer pixels, int pixelIndex, byte[] dst, int off, int len) {
+        int done = 0;
+        for (; done + LANES <= len; done += LANES) {
+            ByteVector message = ByteVector.zero(SPECIES);
+            for (int k = 0; k < 2; k++, pixelIndex += LANES) {
+                // Cada short junta los 2 nibbles de un byte del mensaje
+                ShortVector nibbles =
+                        ByteVector.fromByteBuffer(SPECIES, pixels, pixelIndex, ORDER)
+                                .and((byte) 0xF)
+                                .reinterpretAsShorts();
+                ShortVector bytes =
+                        nibbles.and((short) 0xF)
+                                .lanewise(VectorOperators.LSHL, 4)
+                                .or(nibbles.lanewise(VectorOperators.LSHR, 8));
+                message =
+                        message.or(
+                                (ByteVector) bytes.convertShape(VectorOperators.S2B, SPECIES, -k));
+            }
+            message.intoArray(dst, off + done);
+        }
+        return done;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static VectorShuffle<Byte>[] shuffles(int vectorsPerMessage) {
+        VectorShuffle<Byte>[] shuffles = new VectorShuffle[vectorsPerMessage];
+        int bytesPerVector = LANES / vectorsPerMessage;
+        for (int k = 0; k < vectorsPerMessage; k++) {
+            int base = k * bytesPerVector;
+            shuffles[k] = VectorShuffle.fromOp(SPECIES, j -> base + j / vectorsPerMessage);
+        }
+        return shuffles;
+    }
+
+    private static byte[] lanes(java.util.function.IntUnaryOperator lane) {
+        byte[] values = new byte[LANES];
+        for (int j = 0; j < LANES; j++) {
+            values[j] = (byte) lane.applyAsInt(j);
+        }
+        return values;
+    }
+}